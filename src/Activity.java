@@ -0,0 +1,59 @@
+/**
+ * Keeps score of which block types keep getting left over when the search runs into a dead end,
+ * VSIDS-style, so later searches can try the troublesome ones sooner.
+ *
+ * Every time a search gets stuck, each type it still had left gets a bump.  Each bump is worth
+ * a little more than the one before, so recent dead ends count for more than old ones, which
+ * works out the same as every score slowly decaying without having to touch them all.
+ */
+public class Activity {
+
+    /**
+     * How much each bump is worth compared to the next one.
+     */
+    private static final double DECAY = 0.95;
+
+    /**
+     * The score of each block type.
+     */
+    private final double[] scores;
+
+    /**
+     * What the next bump is worth.
+     */
+    private double increment = 1;
+
+    /**
+     * @param types How many block types there are
+     */
+    public Activity(int types) {
+        scores = new double[types];
+    }
+
+    /**
+     * Bumps the score of every block type with any blocks left.
+     *
+     * @param remaining How many blocks of each type were left at a dead end
+     */
+    public void bump(int[] remaining) {
+        for (int t = 0; t < scores.length; t++) {
+            if (remaining[t] != 0)
+                scores[t] += increment;
+        }
+        increment /= DECAY;
+
+        // Scale everything down before it can overflow.  Only the order matters.
+        if (increment > 1e100) {
+            for (int t = 0; t < scores.length; t++)
+                scores[t] *= 1e-100;
+            increment *= 1e-100;
+        }
+    }
+
+    /**
+     * @return The score of each block type, highest for the ones left over at the most (and most recent) dead ends
+     */
+    public double[] getScores() {
+        return scores.clone();
+    }
+}
@@ -0,0 +1,233 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Picks the settings to solve a puzzle with by trying each candidate for a short while first.
+ *
+ * Every combination of board layout, branching rule and block order gets a probe: a search
+ * that gives up after a fixed number of nodes.  If a probe settles the puzzle outright, that's
+ * the answer.  Otherwise the settings whose probe got through the biggest fraction of its
+ * search tree (see Search.measureProgress()) are used for the real search.
+ */
+public class AutoTune {
+
+    /**
+     * How many nodes each probe gets, unless told otherwise.  Small enough that all the probes
+     * together take a fraction of a second.
+     */
+    public static final long DEFAULT_PROBE_CALLS = 10000;
+
+    /**
+     * The puzzle to solve.
+     */
+    private final Puzzle puzzle;
+
+    /**
+     * Called with every solver before its own settings are applied.
+     */
+    private final Consumer<Solver> common;
+
+    /**
+     * How many nodes each probe gets.
+     */
+    private long probeCalls = DEFAULT_PROBE_CALLS;
+
+    /**
+     * How many milliseconds the probes and the real search may take between them.
+     */
+    private long timeLimit = Long.MAX_VALUE;
+
+    /**
+     * Gets told what came of each probe, and which settings won.
+     */
+    private Consumer<String> log = message -> {
+    };
+
+    /**
+     * Gets told what the real search is doing.
+     */
+    private SearchListener listener = SearchListener.NONE;
+
+    /**
+     * The name of the settings picked by the last solve().
+     */
+    private String chosen;
+
+    /**
+     * @param puzzle The puzzle to solve
+     * @param common Called with every solver (probes and the real one) before its own settings are applied,
+     *               e.g. to set a table budget
+     */
+    public AutoTune(Puzzle puzzle, Consumer<Solver> common) {
+        this.puzzle = puzzle;
+        this.common = common;
+    }
+
+    /**
+     * @param probeCalls How many nodes each probe may visit.  Defaults to DEFAULT_PROBE_CALLS.
+     */
+    public void setProbeCalls(long probeCalls) {
+        this.probeCalls = probeCalls;
+    }
+
+    /**
+     * Makes solve() give up after a certain amount of time, with Result.Status.UNKNOWN and a "timed out" statistic.
+     * Each probe, and then the real search, gets whatever time is left.  This overrides any time limit `common`
+     * sets, which would apply to each of them separately.
+     *
+     * @param timeLimit How many milliseconds the probes and the real search may take between them
+     */
+    public void setTimeLimit(long timeLimit) {
+        this.timeLimit = timeLimit;
+    }
+
+    /**
+     * @param log Gets told the outcome of every probe, and which settings were picked
+     */
+    public void setLog(Consumer<String> log) {
+        this.log = log;
+    }
+
+    /**
+     * @param listener Gets told what the real search (not the probes) is doing
+     */
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Probes every candidate, then solves the puzzle with the best one.
+     *
+     * @return The outcome, with the probes' calls and time included, plus "probe calls" and "probes" statistics
+     */
+    public Result solve() {
+        long start = System.nanoTime();
+        chosen = null;
+        Limits limits = new Limits(null, start, timeLimit, Long.MAX_VALUE);
+        long spent = 0;
+        Settings best = null;
+        double bestProgress = -1;
+        // The probe that got furthest, for its partial fill in case time runs out.
+        Result furthest = null;
+
+        List<Settings> candidates = new ArrayList<>();
+        for (Solver.Layout layout : new Solver.Layout[]{Solver.Layout.AS_GIVEN, Solver.Layout.TRANSPOSED}) {
+            for (Search.Branching branching : Search.Branching.values()) {
+                candidates.add(new Settings(layout, branching, true));
+                candidates.add(new Settings(layout, branching, false));
+            }
+        }
+
+        for (int i = 0; i < candidates.size(); i++) {
+            long left = limits.getMillisLeft();
+            if (left <= 0)
+                return timedOut(furthest, start, spent, i);
+
+            Settings settings = candidates.get(i);
+            Solver probe = settings.configure();
+            probe.setCallLimit(probeCalls);
+            probe.setTimeLimit(left);
+            Result result = probe.solve();
+
+            if (result.getStatus() != Result.Status.UNKNOWN) {
+                // No need to look any further.
+                log.accept(String.format("probe %s: %s in %d calls", settings, result.getStatus(), result.getCalls()));
+                chosen = settings.toString();
+                if (result.isSolved())
+                    listener.solved(result.getPlacements());
+                return withProbes(result, start, spent, i + 1);
+            }
+
+            spent += result.getCalls();
+            double progress = result.getStatistics().getOrDefault("progress (ppm)", 0L) / 1e6;
+            log.accept(String.format("probe %s: %.6f of the tree in %d calls", settings, progress, result.getCalls()));
+            if (progress > bestProgress) {
+                bestProgress = progress;
+                best = settings;
+            }
+            if (furthest == null || result.getPartialArea() > furthest.getPartialArea())
+                furthest = result;
+        }
+
+        long left = limits.getMillisLeft();
+        if (left <= 0)
+            return timedOut(furthest, start, spent, candidates.size());
+
+        chosen = best.toString();
+        log.accept("chose " + best + " after " + candidates.size() + " probes of " + probeCalls + " calls each");
+        Solver solver = best.configure();
+        solver.setListener(listener);
+        solver.setTimeLimit(left);
+        return withProbes(solver.solve(), start, spent, candidates.size());
+    }
+
+    /**
+     * @param furthest The probe with the biggest partial fill, if there was one
+     * @return The result of running out of time before the real search could finish (or start)
+     */
+    private Result timedOut(Result furthest, long start, long spent, int probes) {
+        log.accept("ran out of time after " + probes + " probes");
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("timed out", 1L);
+        List<Placement> partial = furthest != null ? furthest.getPartial() : Collections.<Placement>emptyList();
+        return withProbes(new Result(Result.Status.UNKNOWN, Collections.<Placement>emptyList(), partial, 0, 0, 0,
+                statistics), start, spent, probes);
+    }
+
+    /**
+     * One combination of settings to try.
+     */
+    private class Settings {
+
+        private final Solver.Layout layout;
+        private final Search.Branching branching;
+        private final boolean largestFirst;
+
+        Settings(Solver.Layout layout, Search.Branching branching, boolean largestFirst) {
+            this.layout = layout;
+            this.branching = branching;
+            this.largestFirst = largestFirst;
+        }
+
+        /**
+         * @return A solver for the puzzle with these settings
+         */
+        Solver configure() {
+            Solver solver = new Solver(puzzle.withLargestFirst(largestFirst));
+            common.accept(solver);
+            solver.setLayout(layout);
+            solver.setBranching(branching);
+            return solver;
+        }
+
+        @Override
+        public String toString() {
+            return (layout == Solver.Layout.AS_GIVEN ? "as given" : "transposed") + ", "
+                    + (branching == Search.Branching.FIRST_EMPTY ? "first empty" : "most constrained") + ", "
+                    + (largestFirst ? "largest first" : "blocks in order");
+        }
+    }
+
+    /**
+     * @return A copy of `result` that also counts the work done by the probes before it
+     */
+    private static Result withProbes(Result result, long start, long probeCalls, int probes) {
+        Map<String, Long> statistics = new LinkedHashMap<>(result.getStatistics());
+        statistics.put("probes", (long) probes);
+        statistics.put("probe calls", probeCalls);
+        return new Result(result.getStatus(), result.getPlacements(), result.getPartial(), result.getSolutions(),
+                result.getCalls() + probeCalls, System.nanoTime() - start, statistics);
+    }
+
+    /**
+     * @return The name of the settings the last solve() went with, or null if it hasn't been called or ran out of
+     *         time before picking any
+     */
+    public String getChosen() {
+        return chosen;
+    }
+}
@@ -0,0 +1,241 @@
+/**
+ * A grid of occupied/empty cells stored as bitmasks, one or more longs per row.
+ *
+ * Bit `column % 64` of word `column / 64` in a row is set when that cell is occupied.
+ * Checking, placing and clearing a block touches one word per row (or a couple of
+ * words per row on boards wider than 64), rather than every cell the block covers.
+ */
+public class BitGrid {
+
+    /**
+     * Width and height of the grid, in cells.
+     */
+    private final int width;
+    private final int height;
+
+    /**
+     * Number of longs used to store a single row.
+     */
+    private final int words;
+
+    /**
+     * The cells themselves, row by row.  Row `r` lives in rows[r * words] through rows[r * words + words - 1].
+     *
+     * Bits past the right edge of the grid are permanently set, so they look occupied to everything
+     * that scans for empty cells.
+     */
+    private final long[] rows;
+
+    /**
+     * Creates an empty grid.
+     *
+     * @param width The width of the grid
+     * @param height The height of the grid
+     */
+    public BitGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.words = (width + 63) >>> 6;
+        this.rows = new long[words * height];
+
+        // Mark the padding past the right edge as occupied.
+        int spare = width & 63;
+        if (spare != 0) {
+            for (int row = 0; row < height; row++)
+                rows[row * words + words - 1] = -1L << spare;
+        }
+    }
+
+    /**
+     * @return The width of the grid
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return The height of the grid
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Checks to see if a w x h block will fit in the grid at (column, row)
+     * and won't overlap another already-placed block.
+     *
+     * @param w The width of the block
+     * @param h The height of the block
+     * @param column The column of the block's upper left corner
+     * @param row The row of the block's upper left corner
+     * @return Whether the block will fit
+     */
+    public boolean fits(int w, int h, int column, int row) {
+        if (column + w > width || row + h > height)
+            return false;
+
+        int first = column >>> 6;
+        int last = (column + w - 1) >>> 6;
+        long firstMask = -1L << column;
+        long lastMask = -1L >>> (63 - ((column + w - 1) & 63));
+
+        if (first == last) {
+            // The common case - the whole block lands in a single word of each row.
+            long mask = firstMask & lastMask;
+            for (int index = row * words + first, end = (row + h) * words; index < end; index += words) {
+                if ((rows[index] & mask) != 0)
+                    return false;
+            }
+            return true;
+        }
+
+        for (int r = row; r < row + h; r++) {
+            int base = r * words;
+            if ((rows[base + first] & firstMask) != 0 || (rows[base + last] & lastMask) != 0)
+                return false;
+            for (int word = first + 1; word < last; word++) {
+                if (rows[base + word] != 0)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Marks the cells covered by a w x h block at (column, row) as occupied.
+     * This method assumes the block will fit no matter what.
+     *
+     * @param w The width of the block
+     * @param h The height of the block
+     * @param column The column of the block's upper left corner
+     * @param row The row of the block's upper left corner
+     */
+    public void place(int w, int h, int column, int row) {
+        flip(w, h, column, row);
+    }
+
+    /**
+     * Marks the cells covered by a w x h block at (column, row) as empty.
+     * This method assumes that exactly that block was placed there.
+     *
+     * @param w The width of the block
+     * @param h The height of the block
+     * @param column The column of the block's upper left corner
+     * @param row The row of the block's upper left corner
+     */
+    public void clear(int w, int h, int column, int row) {
+        flip(w, h, column, row);
+    }
+
+    /**
+     * Toggles every cell covered by a w x h block at (column, row).  Since a block is only ever
+     * placed on empty cells and only ever cleared from its own cells, a toggle works for both.
+     */
+    private void flip(int w, int h, int column, int row) {
+        int first = column >>> 6;
+        int last = (column + w - 1) >>> 6;
+        long firstMask = -1L << column;
+        long lastMask = -1L >>> (63 - ((column + w - 1) & 63));
+
+        if (first == last)
+            firstMask &= lastMask;
+
+        for (int r = row; r < row + h; r++) {
+            int base = r * words;
+            rows[base + first] ^= firstMask;
+            if (first != last) {
+                for (int word = first + 1; word < last; word++)
+                    rows[base + word] ^= -1L;
+                rows[base + last] ^= lastMask;
+            }
+        }
+    }
+
+    /**
+     * @param column The column of the cell
+     * @param row The row of the cell
+     * @return Whether nothing has been placed over the given cell
+     */
+    public boolean isEmpty(int column, int row) {
+        return (rows[row * words + (column >>> 6)] & (1L << column)) == 0;
+    }
+
+    /**
+     * Finds the first empty cell in row-major order, starting from (and including) the given cell.
+     *
+     * @param column The column to start searching at
+     * @param row The row to start searching at
+     * @return The empty cell as row * width + column, or -1 if every cell from the starting point on is filled.
+     */
+    public int nextEmpty(int column, int row) {
+        if (row >= height)
+            return -1;
+
+        int index = row * words + (column >>> 6);
+        long free = ~rows[index] & (-1L << column);
+        int end = rows.length;
+
+        while (free == 0) {
+            if (++index == end)
+                return -1;
+            free = ~rows[index];
+        }
+
+        int r = index / words;
+        int c = ((index - r * words) << 6) + Long.numberOfTrailingZeros(free);
+        return r * width + c;
+    }
+
+    /**
+     * Finds the first empty cell in row-major order, starting from (and including) the given cell,
+     * that has a filled cell (or the edge of the grid) both above it and to its left.  Whatever
+     * block ends up covering a cell like that has to have its upper left corner there.
+     *
+     * @param column The column to start searching at.  May be the width of the grid, meaning the start of the next row.
+     * @param row The row to start searching at
+     * @return The cell as row * width + column, or -1 if there are no more of them
+     */
+    public int nextCorner(int column, int row) {
+        if (column >= width) {
+            column = 0;
+            row++;
+        }
+
+        for (int r = row; r < height; r++) {
+            int base = r * words;
+            for (int word = r == row ? column >>> 6 : 0; word < words; word++) {
+                long cells = rows[base + word];
+                long leftFilled = cells << 1 | (word == 0 ? 1 : rows[base + word - 1] >>> 63);
+                long aboveFilled = r == 0 ? -1L : rows[base - words + word];
+                long corners = ~cells & leftFilled & aboveFilled;
+                if (r == row && word == column >>> 6)
+                    corners &= -1L << column;
+                if (corners != 0)
+                    return r * width + (word << 6) + Long.numberOfTrailingZeros(corners);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param column The column of an empty cell
+     * @param row The row of the cell
+     * @return How many empty cells there are in a row starting at the given one and going right
+     */
+    public int runLength(int column, int row) {
+        int index = row * words + (column >>> 6);
+        int end = (row + 1) * words;
+        long occupied = rows[index] >>> column;
+        int run = 0;
+        int offset = column & 63;
+
+        while (occupied == 0) {
+            run += 64 - offset;
+            if (++index == end)
+                return Math.min(run, width - column);
+            occupied = rows[index];
+            offset = 0;
+        }
+        return Math.min(run + Long.numberOfTrailingZeros(occupied), width - column);
+    }
+}
@@ -1,61 +1,114 @@
-import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
 
 /**
  * Given a file describing a board plus a set of blocks to place on the board,
- * use a recursive algorithm to find a way to place them all down.
+ * use a backtracking search to find a way to place them all down.
  *
  * @author Jack Stratton (strattj2@wwu.edu) w/ pseudocode from Chris Reedy (Chris.Reedy@wwu.edu)
  */
 public class Blocks {
 
-    private static final String USAGE = "Usage: Blocks <file>\n\n\twhere <file> is the path to a properly formatted input file.";
+    private static final String USAGE = "Usage: Blocks [--parallel] [--dlx] [--count] [--estimate <probes>] [--table-mb <n>] [--no-pockets] [--most-constrained] [--layout <auto|given|transposed>] [--portfolio] [--auto-tune] [--restarts <seed>] [--time-limit <ms>] [--call-limit <n>] [--partial] [--headless] <file>\n\n"
+            + "\twhere <file> is the path to a properly formatted input file.\n\n"
+            + "\t--parallel\tsplit the search across every available processor\n"
+            + "\t--dlx\t\tsolve it as an exact cover problem with dancing links\n"
+            + "\t--count\t\tcount every distinct solution (with dancing links)\n"
+            + "\t--estimate <probes>\tguess how long the search will take from <probes> random paths, without running it\n"
+            + "\t--table-mb <n>\tremember dead ends in up to <n> MB (default 16, 0 to turn off)\n"
+            + "\t--no-pockets\tdon't look for enclosed pockets that can't be filled\n"
+            + "\t--most-constrained\tcover whichever corner the fewest blocks fit on next, not the first empty cell\n"
+            + "\t--layout <l>\tsearch the board as given, transposed, or whichever has shorter rows (default auto)\n"
+            + "\t--portfolio\trace several strategies against each other and take the first answer\n"
+            + "\t--auto-tune\ttry each layout, branching rule and block order briefly, then go with the best\n"
+            + "\t--restarts <seed>\tstart over in a random order every so often, printing each run as it finishes\n"
+            + "\t--time-limit <ms>\tgive up after <ms> milliseconds\n"
+            + "\t--call-limit <n>\tgive up after visiting <n> nodes\n"
+            + "\t--partial\tif there's no solution, show the biggest partial fill found instead\n"
+            + "\t--headless\tdon't animate the search, just print the solution\n\n"
+            + "\t--portfolio and --auto-tune choose the engine, branching and layout themselves, so they can't be\n"
+            + "\tcombined with each other or with --parallel, --dlx, --restarts, --most-constrained or --layout.";
 
     /**
-     * Incremented by one for each recursive call to explore().
+     * The input file named on the command line.
      */
-    private static int calls;
+    private static Path inputFile;
 
     /**
-     * Width and height of the grid to place all the blocks on.
+     * Whether to search on every processor at once rather than just this thread.
      */
-    private static int width;
-    private static int height;
+    private static boolean parallel;
 
     /**
-     * List of blocks given in the input file.
-     *
-     * A block, throughout this program, is described as a two-element int[] where the
-     * first element is the block's width and the second element the block's height.
+     * Which engine to search with.
      */
-    private static final List<int[]> inputBlocks = new ArrayList<>();
+    private static Solver.Engine engine = Solver.Engine.BACKTRACK;
 
     /**
-     * List of blocks that have been placed on the grid so far.
+     * Whether to count every solution rather than stopping at the first one.
      */
-    private static final List<int[]> used = new ArrayList<>();
+    private static boolean count;
 
     /**
-     * The actual grid.  A value in the grid other than zero indicates that a block was
-     * placed there - the value will be the call # that placed it there.
+     * How many random paths to estimate the size of the search from, or 0 to run it.
      */
-    private static int[][] grid;
+    private static int estimateProbes;
 
     /**
-     * Hacky constants for getting parts of blocks as if they were object properties.
-     *
-     * rect[x] is... something like rect.x I guess?
+     * How many bytes the search may spend remembering dead ends.
+     */
+    private static long tableBudget = Solver.DEFAULT_TABLE_BUDGET;
+
+    /**
+     * Whether to look for enclosed pockets that can't be filled.
+     */
+    private static boolean pocketCheck = true;
+
+    /**
+     * How to pick the cell to cover next.
+     */
+    private static Search.Branching branching = Search.Branching.FIRST_EMPTY;
+
+    /**
+     * Which way round to search the board.
+     */
+    private static Solver.Layout layout = Solver.Layout.AUTO;
+
+    /**
+     * Whether to race a portfolio of strategies instead of running one.
      */
-    private static final int x = 0;
-    private static final int y = 1;
+    private static boolean portfolio;
 
     /**
-     * Handles printing and animating solutions.
+     * Whether to probe a few settings and go with the best, instead of using the ones given.
      */
-    private static DrawBlock drawBlock;
+    private static boolean autoTune;
+
+    /**
+     * The seed to restart the search from every so often, or null to search straight through.
+     */
+    private static Long restartSeed;
+
+    /**
+     * How long the search may take, in milliseconds, and how many nodes it may visit.
+     */
+    private static long timeLimit = Long.MAX_VALUE;
+    private static long callLimit = Long.MAX_VALUE;
+
+    /**
+     * Whether to show the biggest partial fill when there's no solution.
+     */
+    private static boolean showPartial;
+
+    /**
+     * Whether to skip the animation and only print the solution.
+     */
+    private static boolean headless;
 
     /**
      * Program entry point.
@@ -64,189 +117,315 @@ public class Blocks {
         if (!processArgs(args))
             return;
 
-        // This sets up the global variables.
-        readData(new Scanner(new File(args[0])));
-
-        if (explore()) {
-            System.out.println("Solved in " + calls + " calls");
-        } else {
-            System.out.println("Can't solve, took " + calls + " calls to find that out");
+        Puzzle puzzle = Puzzle.read(new Scanner(inputFile.toFile()));
+
+        Solver solver = new Solver(puzzle);
+        solver.setEngine(engine);
+        solver.setParallel(parallel);
+        solver.setTableBudget(tableBudget);
+        solver.setPocketCheck(pocketCheck);
+        solver.setBranching(branching);
+        solver.setLayout(layout);
+        solver.setTimeLimit(timeLimit);
+        solver.setCallLimit(callLimit);
+        if (restartSeed != null) {
+            solver.setRestarts(restartSeed);
+            solver.setLog(message -> System.out.println("\t" + message));
         }
-    }
-
-    /**
-     * Backtracking recursive solver that places blocks on the grid,
-     * recurses to place the next block, and if that doesn't help then it
-     * removes the block from the grid and tries again with the next block.
-     *
-     * @return true if a complete solution was achieved
-     */
-    private static boolean explore() {
-        calls++;
-
-        for (int[] block : inputBlocks) {
-
-            int[] next = findEmptyLocation();
-            if (next == null)
-                return true;
-            if (used.contains(block))
-                continue;
-
-            // Check to see if the block will fit at `next`
-            if (rectFits(block, next)) {
-                // Place it
-                place(block, next);
-                // Keep track of it
-                used.add(block);
-                // Try placing the rest of the rectangles down after that one.
-                if (explore())
-                    return true;
-                // Implicit 'else' - this rectangle at `next` didn't help solve the problem.
-                clear(block, next);
-                used.remove(block);
-            }
 
-            // Same thing, but try flipping the block around so that its width and height are swapped.
-            int[] reversed = {block[y], block[x]};
+        if (count) {
+            Result result = solver.countSolutions();
+            System.out.println((result.getStatus() == Result.Status.UNKNOWN ? "Gave up after finding " : "Found ")
+                    + result.getSolutions() + " solutions in " + result.getCalls() + " calls ("
+                    + result.getElapsedMillis() + " ms)");
+            return;
+        }
 
-            if (rectFits(reversed, next)) {
-                place(reversed, next);
-                used.add(block);
-                if (explore())
-                    return true;
-                clear(reversed, next);
-                used.remove(block);
+        if (estimateProbes > 0) {
+            Estimate estimate = solver.estimate(estimateProbes, 0);
+            if (estimate.isExact()) {
+                System.out.printf("Takes exactly %.0f calls (about %.0f ms)%n", estimate.getNodes(), estimate.getMillis());
+            } else if (estimate.getProbes() == 0) {
+                System.out.println("Gave up before the first probe, so there's nothing to go on");
+            } else {
+                System.out.printf("Takes about %.3g calls (%.3g to %.3g), %.3g ms (%.3g to %.3g) at %.0f ns per call, "
+                                + "from %d probes%n", estimate.getNodes(), estimate.getLowNodes(), estimate.getHighNodes(),
+                        estimate.getMillis(), estimate.getLowMillis(), estimate.getHighMillis(),
+                        estimate.getNanosPerNode(), estimate.getProbes());
             }
+            return;
         }
 
-        // At this point we have failed to find a solution, return false
-        // indicating failure
-        return false;
-    }
-
-    /**
-     * Fills the grid with a given value, starting from `startingLocation`
-     * and ending at `startingLocation` plus the given block's dimensions.
-     *
-     * @param block The size of the block to fill in
-     * @param startingLocation Where to start filling the grid from
-     * @param filledValue The value to place in the grid at every point in the rectangle
-     */
-    private static void fill(int[] block, int[] startingLocation, int filledValue) {
-        for (int row = startingLocation[y]; row < startingLocation[y] + block[y]; row++) {
-            for (int column = startingLocation[x]; column < startingLocation[x] + block[x]; column++) {
-                grid[row][column] = filledValue;
-            }
+        Result result;
+        if (portfolio) {
+            // Only the winner gets drawn, so there's nothing to follow along with.
+            Portfolio race = Portfolio.standard(puzzle, s -> {
+                s.setTableBudget(tableBudget);
+                s.setPocketCheck(pocketCheck);
+                s.setTimeLimit(timeLimit);
+                s.setCallLimit(callLimit);
+            });
+            if (!headless)
+                race.setListener(new DrawBlockListener(setupDrawBlock(puzzle), false));
+            race.setLog(message -> System.out.println("\t" + message));
+            result = race.solve();
+            if (race.getWinner() != null)
+                System.out.println("Fastest strategy: " + race.getWinner());
+            showSolution(puzzle, result);
+        } else if (autoTune) {
+            // The probes have their own call limit, so the call limit only holds the real search back.  The time
+            // limit covers the probes and the real search together.
+            AutoTune tune = new AutoTune(puzzle, s -> {
+                s.setTableBudget(tableBudget);
+                s.setPocketCheck(pocketCheck);
+                s.setCallLimit(callLimit);
+            });
+            tune.setTimeLimit(timeLimit);
+            tune.setListener(searchListener(puzzle));
+            tune.setLog(message -> System.out.println("\t" + message));
+            result = tune.solve();
+            if (tune.getChosen() != null)
+                System.out.println("Auto-tuned to: " + tune.getChosen());
+            showSolution(puzzle, result);
+        } else {
+            solver.setListener(searchListener(puzzle));
+            result = solver.solve();
+            showSolution(puzzle, result);
         }
-    }
 
-    /**
-     * Checks to see if a block will fit in the grid at `startingLocation`
-     * and won't overlap another already-placed block.
-     *
-     * @param block The block to try and place
-     * @param startingLocation Where to try to place the block down
-     * @return Whether the block will fit at `startingLocation`
-     */
-    private static boolean rectFits(int[] block, int[] startingLocation) {
-        for (int row = 0; row < block[y]; row++) {
-            for (int column = 0; column < block[x]; column++) {
-                if (row + startingLocation[y] >= grid.length // Vertical bounds check
-                        || column + startingLocation[x] >= grid[row].length // Horizontal bounds check
-                        || grid[row + startingLocation[y]][column + startingLocation[x]] != 0) // Overlap check
-                    return false;
+        if (result.isSolved()) {
+            System.out.println("Solved in " + result.getCalls() + " calls (" + result.getElapsedMillis() + " ms)");
+        } else if (result.getStatus() == Result.Status.UNKNOWN) {
+            System.out.println("Gave up after " + result.getCalls() + " calls (" + result.getElapsedMillis() + " ms)");
+        } else {
+            System.out.println("Can't solve, took " + result.getCalls() + " calls to find that out ("
+                    + result.getElapsedMillis() + " ms)");
+        }
+        for (Map.Entry<String, Long> statistic : result.getStatistics().entrySet())
+            System.out.println("\t" + statistic.getKey() + ": " + statistic.getValue());
+
+        if (!result.isSolved() && !result.getPartial().isEmpty()) {
+            System.out.println("Best partial fill covers " + result.getPartialArea() + " of "
+                    + puzzle.getWidth() * puzzle.getHeight() + " cells with " + result.getPartial().size() + " blocks");
+            if (showPartial && headless) {
+                printPlacements(puzzle, result.getPartial());
+            } else if (showPartial) {
+                DrawBlock drawBlock = setupDrawBlock(puzzle);
+                for (Placement placement : result.getPartial())
+                    drawBlock.placeRect(placement.getWidth(), placement.getHeight(), placement.getColumn(), placement.getRow());
+                drawBlock.printRect();
             }
         }
-        return true;
     }
 
     /**
-     * Find a place on the grid that a block isn't occupying.
-     *
-     * @return The coordinates of an empty position, or null if the entire grid is filled up.
+     * @param puzzle The puzzle that will be solved
+     * @return A listener that animates the search on a new DrawBlock, or SearchListener.NONE if headless, so that
+     *         there's nothing slowing the search down
      */
-    private static int[] findEmptyLocation() {
-        for (int row = 0; row < grid.length; row++) {
-            for (int column = 0; column < grid[row].length; column++) {
-                if (grid[row][column] == 0)
-                    return new int[]{column, row};
-            }
-        }
-        return null;
+    private static SearchListener searchListener(Puzzle puzzle) {
+        return headless ? SearchListener.NONE : new DrawBlockListener(setupDrawBlock(puzzle), true);
     }
 
     /**
-     * Places a block at a given location.  This method assumes the block will fit no matter what.
+     * Prints the solution if it was solved headless, since there was no DrawBlock to do it.
      *
-     * @param block The block to place
-     * @param startingLocation Where to place the block
+     * @param puzzle The puzzle that was solved
+     * @param result The outcome of the search
      */
-    private static void place(int[] block, int[] startingLocation) {
-        drawBlock.placeRect(block[x], block[y], startingLocation[x], startingLocation[y]);
-        // Fill with the current call number, to help in debugging. Anything nonzero will work.
-        fill(block, startingLocation, calls);
+    private static void showSolution(Puzzle puzzle, Result result) {
+        if (headless && result.isSolved())
+            printPlacements(puzzle, result.getPlacements());
     }
 
     /**
-     * Removes the given block from the given location.
-     * This method assumes the block at `startingLocation` is accurately described by the parameter `block`.
+     * Prints blocks on the board the same way DrawBlock.printRect() does, but without needing a DrawBlock, so
+     * it works for boards of any size.
      *
-     * @param block The block to remove
-     * @param startingLocation Where to remove it from
+     * @param puzzle The puzzle the blocks belong to
+     * @param placements Where the blocks are
      */
-    private static void clear(int[] block, int[] startingLocation) {
-        drawBlock.clearRect(block[x], block[y], startingLocation[x], startingLocation[y]);
-        fill(block, startingLocation, 0);
+    private static void printPlacements(Puzzle puzzle, List<Placement> placements) {
+        int width = puzzle.getWidth();
+        int height = puzzle.getHeight();
+        if (placements.size() == puzzle.getBlocks().size())
+            System.out.println("Solution!");
+        else if (placements.isEmpty())
+            System.out.println("Empty target");
+        else
+            System.out.println("Partially filled target");
+
+        // Thin blocks get more lines each, so there's room to label them.
+        int shortest = Integer.MAX_VALUE;
+        for (int[] block : puzzle.getBlocks())
+            shortest = Math.min(shortest, Math.min(block[Puzzle.x], block[Puzzle.y]));
+        int multiple = shortest == 1 ? 3 : shortest == 2 ? 2 : 1;
+
+        int[] owner = new int[width * height];
+        Arrays.fill(owner, -1);
+        for (int i = 0; i < placements.size(); i++) {
+            Placement placement = placements.get(i);
+            for (int row = placement.getRow(); row < placement.getRow() + placement.getHeight(); row++)
+                Arrays.fill(owner, row * width + placement.getColumn(),
+                        row * width + placement.getColumn() + placement.getWidth(), i);
+        }
+
+        StringBuilder line = new StringBuilder(width * 2 * multiple);
+        for (int printRow = 0; printRow < height * multiple; printRow++) {
+            line.setLength(0);
+            int row = printRow / multiple;
+            for (int column = 0; column < width; ) {
+                int i = owner[row * width + column];
+                if (i < 0) {
+                    for (int k = 0; k < 2 * multiple; k++)
+                        line.append('.');
+                    column++;
+                    continue;
+                }
+
+                Placement placement = placements.get(i);
+                int printWidth = 2 * placement.getWidth() * multiple;
+                int top = placement.getRow() * multiple;
+                int bottom = (placement.getRow() + placement.getHeight()) * multiple;
+                int start = line.length();
+                boolean edge = printRow == top || printRow == bottom - 1;
+                line.append(edge ? '+' : '|');
+                for (int k = 1; k < printWidth - 1; k++)
+                    line.append(edge ? '-' : ' ');
+                line.append(edge ? '+' : '|');
+                if (!edge && printRow == (top + bottom - 1) / 2) {
+                    String dims = placement.getWidth() + "x" + placement.getHeight();
+                    int at = start + (printWidth - dims.length()) / 2;
+                    line.replace(at, at + dims.length(), dims);
+                }
+                column += placement.getWidth();
+            }
+            System.out.println(line);
+        }
     }
 
     /**
-     * Read the file given by `input` and set up the global variables with the data inside it.
+     * Creates a DrawBlock for printing and animating solutions to a puzzle.
      *
-     * @param input The input data
+     * @param puzzle The puzzle that will be solved
+     * @return The DrawBlock, set up with the puzzle's board and blocks
      */
-    private static void readData(Scanner input) {
-        width = input.nextInt();
-        height = input.nextInt();
-        int blockCount = input.nextInt();
-
-        drawBlock = new DrawBlock(width, height);
-        grid = new int[height][width];
-
-        for (int i = 0; i < blockCount; i++) {
-            int[] block = {input.nextInt(), input.nextInt()};
-            inputBlocks.add(block);
-            drawBlock.useRect(block[x], block[y]);
-        }
-
+    private static DrawBlock setupDrawBlock(Puzzle puzzle) {
+        DrawBlock drawBlock = new DrawBlock(puzzle.getWidth(), puzzle.getHeight());
+        for (int[] block : puzzle.getBlocks())
+            drawBlock.useRect(block[Puzzle.x], block[Puzzle.y]);
         drawBlock.setupComplete();
-
-        // This puts the largest (by area) blocks at the front of the list, so they are placed first.
-        // This tends to help with extremely large problems, as it's hard to place a giant block down last.
-        if (inputBlocks.size() > 8)
-            inputBlocks.sort(Comparator.comparingInt(block -> -block[x] * block[y]));
+        return drawBlock;
     }
 
     /**
-     * Handle the command-line argument.
+     * Handle the command-line arguments.
      *
      * @param args The command-line arguments, as belonging to main()
      * @return Whether the arguments are valid
      */
     private static boolean processArgs(String[] args) {
-        if (args.length != 1) {
+        int arg = 0;
+        for (; arg < args.length && args[arg].startsWith("--"); arg++) {
+            switch (args[arg]) {
+                case "--parallel":
+                    parallel = true;
+                    break;
+                case "--dlx":
+                    engine = Solver.Engine.DANCING_LINKS;
+                    break;
+                case "--count":
+                    count = true;
+                    break;
+                case "--estimate":
+                    if (++arg == args.length || !args[arg].matches("[1-9]\\d*")) {
+                        System.out.println(USAGE);
+                        return false;
+                    }
+                    estimateProbes = Integer.parseInt(args[arg]);
+                    break;
+                case "--table-mb":
+                    if (++arg == args.length || !args[arg].matches("\\d+")) {
+                        System.out.println(USAGE);
+                        return false;
+                    }
+                    tableBudget = Long.parseLong(args[arg]) << 20;
+                    break;
+                case "--no-pockets":
+                    pocketCheck = false;
+                    break;
+                case "--most-constrained":
+                    branching = Search.Branching.MOST_CONSTRAINED;
+                    break;
+                case "--layout":
+                    if (++arg == args.length || !args[arg].matches("auto|given|transposed")) {
+                        System.out.println(USAGE);
+                        return false;
+                    }
+                    layout = args[arg].equals("auto") ? Solver.Layout.AUTO
+                            : args[arg].equals("given") ? Solver.Layout.AS_GIVEN : Solver.Layout.TRANSPOSED;
+                    break;
+                case "--portfolio":
+                    portfolio = true;
+                    break;
+                case "--auto-tune":
+                    autoTune = true;
+                    break;
+                case "--restarts":
+                    if (++arg == args.length || !args[arg].matches("-?\\d+")) {
+                        System.out.println(USAGE);
+                        return false;
+                    }
+                    restartSeed = Long.parseLong(args[arg]);
+                    break;
+                case "--time-limit":
+                    if (++arg == args.length || !args[arg].matches("\\d+")) {
+                        System.out.println(USAGE);
+                        return false;
+                    }
+                    timeLimit = Long.parseLong(args[arg]);
+                    break;
+                case "--call-limit":
+                    if (++arg == args.length || !args[arg].matches("\\d+")) {
+                        System.out.println(USAGE);
+                        return false;
+                    }
+                    callLimit = Long.parseLong(args[arg]);
+                    break;
+                case "--partial":
+                    showPartial = true;
+                    break;
+                case "--headless":
+                    headless = true;
+                    break;
+                default:
+                    System.out.println(USAGE);
+                    return false;
+            }
+        }
+
+        if (arg != args.length - 1) {
+            System.out.println(USAGE);
+            return false;
+        }
+
+        // The portfolio and auto-tune would quietly ignore any settings of their own choosing, so refuse them.
+        if ((portfolio || autoTune) && (portfolio && autoTune || parallel || engine != Solver.Engine.BACKTRACK
+                || restartSeed != null || branching != Search.Branching.FIRST_EMPTY || layout != Solver.Layout.AUTO)) {
             System.out.println(USAGE);
             return false;
         }
 
         // Using path objects eliminates the necessity of two File objects
         // pointing to the same file, both of which would never be closed...
-        Path path = Paths.get(args[0]);
+        Path path = Paths.get(args[arg]);
 
         if (!(Files.isReadable(path) && Files.isRegularFile(path))) {
             System.out.println(USAGE);
             return false;
         }
 
+        inputFile = path;
         return true;
     }
 }
@@ -0,0 +1,451 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Solves a puzzle as an exact cover problem, using Knuth's Algorithm X with dancing links.
+ *
+ * Every cell of the board is a column that has to be covered exactly once, and every way of
+ * putting a block down (block type, orientation and position) is a row covering the cells
+ * under it.  At each step the search picks the cell with the fewest placements left that
+ * could cover it, which fails fast on tightly constrained puzzles.
+ *
+ * Each block type also gets a column, but those don't have to be covered.  Instead, the type
+ * column is covered (taking every remaining placement of that type out of the matrix) once
+ * all of the blocks of that type have been used.  Since the blocks add up to the area of the
+ * board, covering every cell uses every block, and identical blocks aren't told apart, so
+ * every distinct solution is found exactly once.
+ *
+ * The matrix is stored in int arrays rather than node objects.  The nodes of a row sit next to
+ * each other, so only the vertical links need to be stored for them.
+ */
+public class DancingLinks {
+
+    /**
+     * Width and height of the grid to place all the blocks on.
+     */
+    private final int width;
+    private final int height;
+
+    /**
+     * The puzzle's orientations, see Puzzle.
+     */
+    private final int[] orientationWidth;
+    private final int[] orientationHeight;
+    private final int[] orientationType;
+
+    /**
+     * How many blocks of each type have not been placed yet.
+     */
+    private final int[] remaining;
+
+    /**
+     * Gets told about every block placed and removed.
+     */
+    private final SearchListener listener;
+
+    /**
+     * Node 0 is the root, nodes 1 through cells are the cell column headers, and the next
+     * `types` nodes are the block type column headers.  After that come the rows.
+     */
+    private static final int ROOT = 0;
+    private final int cells;
+    private final int types;
+
+    /**
+     * How many rows and nodes the matrix has.
+     */
+    private final int rows;
+    private final int nodeCount;
+
+    /**
+     * Whether the matrix has been built yet.  Building it can take a while on a big board, so
+     * it's left until the search starts, when it can be called off.
+     */
+    private boolean built;
+
+    /**
+     * Horizontal links between the column headers.  Only cell columns are linked into the
+     * root's list; type columns link to themselves, since they never have to be chosen.
+     */
+    private int[] left;
+    private int[] right;
+
+    /**
+     * Vertical links, plus the column header of every node.
+     */
+    private int[] up;
+    private int[] down;
+    private int[] column;
+
+    /**
+     * How many rows are currently in each column.
+     */
+    private int[] size;
+
+    /**
+     * The row each node belongs to, and for each row, its first node, the orientation it puts
+     * down and the cell its upper left corner goes on.
+     */
+    private int[] rowOf;
+    private int[] rowStart;
+    private int[] rowOrientation;
+    private int[] rowCell;
+
+    /**
+     * The node of the row chosen at each level of the search.
+     */
+    private final int[] chosen;
+
+    /**
+     * How many rows have been chosen so far.
+     */
+    private int level;
+
+    /**
+     * How many cells the chosen rows cover, and the most they have covered so far.
+     */
+    private int covered;
+    private int bestCovered;
+
+    /**
+     * The blocks that covered the most cells so far, in the order they were placed.
+     */
+    private List<Placement> bestPartial = new ArrayList<>();
+
+    /**
+     * Incremented by one for each node of the search tree explore() visits.
+     */
+    private long calls;
+
+    /**
+     * When the search has to give up before it has tried everything.
+     */
+    private Limits limits = Limits.NONE;
+
+    /**
+     * Set when the search gives up because of the call limit.
+     */
+    private boolean outOfCalls;
+
+    /**
+     * Sets up to solve a puzzle.  The exact cover matrix isn't built until the search starts.
+     *
+     * @param puzzle The puzzle to solve
+     * @param listener Gets told about every block placed and removed
+     */
+    public DancingLinks(Puzzle puzzle, SearchListener listener) {
+        this.width = puzzle.getWidth();
+        this.height = puzzle.getHeight();
+        this.orientationWidth = puzzle.getOrientationWidth();
+        this.orientationHeight = puzzle.getOrientationHeight();
+        this.orientationType = puzzle.getOrientationType();
+        this.remaining = puzzle.getCounts().clone();
+        this.listener = listener;
+        this.cells = width * height;
+        this.types = remaining.length;
+
+        // Count the rows and nodes first so everything fits in flat arrays.
+        int rows = 0;
+        long nodes = 1 + cells + types;
+        for (int o = 0; o < orientationType.length; o++) {
+            int w = orientationWidth[o];
+            int h = orientationHeight[o];
+            if (w > width || h > height)
+                continue;
+            int positions = (width - w + 1) * (height - h + 1);
+            rows += positions;
+            nodes += (long) positions * (w * h + 1);
+        }
+        if (nodes > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Puzzle is too big for the exact cover matrix (" + nodes + " nodes)");
+        this.rows = rows;
+        this.nodeCount = (int) nodes;
+        chosen = new int[puzzle.getBlockCount()];
+    }
+
+    /**
+     * Builds the exact cover matrix, giving up part way if the search is called off.
+     *
+     * @return Whether the matrix was finished
+     */
+    private boolean build() {
+        // Just the arrays can take tens of milliseconds to allocate.
+        if (limits.calledOff())
+            return false;
+
+        left = new int[1 + cells + types];
+        right = new int[1 + cells + types];
+        size = new int[1 + cells + types];
+        up = new int[nodeCount];
+        down = new int[nodeCount];
+        column = new int[nodeCount];
+        rowOf = new int[nodeCount];
+        rowStart = new int[rows];
+        rowOrientation = new int[rows];
+        rowCell = new int[rows];
+
+        // Column headers - the cells in a ring with the root, then the types on their own.
+        for (int c = 0; c <= cells + types; c++) {
+            up[c] = down[c] = column[c] = c;
+            if (c <= cells) {
+                left[c] = c == 0 ? cells : c - 1;
+                right[c] = c == cells ? 0 : c + 1;
+            } else {
+                left[c] = right[c] = c;
+            }
+        }
+
+        // One row per placement.
+        int node = 1 + cells + types;
+        int row = 0;
+        for (int o = 0; o < orientationType.length; o++) {
+            int w = orientationWidth[o];
+            int h = orientationHeight[o];
+            for (int r = 0; r + h <= height; r++) {
+                for (int c = 0; c + w <= width; c++) {
+                    if (limits.calledOff())
+                        return false;
+                    rowStart[row] = node;
+                    rowOrientation[row] = o;
+                    rowCell[row] = r * width + c;
+                    for (int dr = 0; dr < h; dr++) {
+                        for (int dc = 0; dc < w; dc++)
+                            link(node++, 1 + (r + dr) * width + c + dc, row);
+                    }
+                    link(node++, 1 + cells + orientationType[o], row);
+                    row++;
+                }
+            }
+        }
+        built = true;
+        return true;
+    }
+
+    /**
+     * Adds a node to the bottom of a column.
+     */
+    private void link(int node, int header, int row) {
+        column[node] = header;
+        rowOf[node] = row;
+        up[node] = up[header];
+        down[node] = header;
+        down[up[header]] = node;
+        up[header] = node;
+        size[header]++;
+    }
+
+    /**
+     * @param node A node in a row
+     * @return The node after it in the same row, wrapping around at the end
+     */
+    private int next(int node) {
+        int row = rowOf[node];
+        int end = row + 1 < rowStart.length ? rowStart[row + 1] : up.length;
+        return node + 1 == end ? rowStart[row] : node + 1;
+    }
+
+    /**
+     * @param node A node in a row
+     * @return The node before it in the same row, wrapping around at the start
+     */
+    private int previous(int node) {
+        int row = rowOf[node];
+        if (node != rowStart[row])
+            return node - 1;
+        return row + 1 < rowStart.length ? rowStart[row + 1] - 1 : up.length - 1;
+    }
+
+    /**
+     * Takes a column out of the header list, and every row in it out of every other column.
+     */
+    private void cover(int c) {
+        right[left[c]] = right[c];
+        left[right[c]] = left[c];
+        for (int i = down[c]; i != c; i = down[i]) {
+            for (int j = next(i); j != i; j = next(j)) {
+                down[up[j]] = down[j];
+                up[down[j]] = up[j];
+                size[column[j]]--;
+            }
+        }
+    }
+
+    /**
+     * Exactly undoes cover(c).
+     */
+    private void uncover(int c) {
+        for (int i = up[c]; i != c; i = up[i]) {
+            for (int j = previous(i); j != i; j = previous(j)) {
+                size[column[j]]++;
+                down[up[j]] = j;
+                up[down[j]] = j;
+            }
+        }
+        right[left[c]] = c;
+        left[right[c]] = c;
+    }
+
+    /**
+     * Puts down the placement a node's row stands for, covering every other column in the row.
+     * The row's own column must already be covered.
+     */
+    private void select(int node) {
+        for (int j = next(node); j != node; j = next(j)) {
+            int c = column[j];
+            if (c <= cells)
+                cover(c);
+            else if (--remaining[c - 1 - cells] == 0)
+                cover(c);
+        }
+        int row = rowOf[node];
+        int o = rowOrientation[row];
+        listener.placed(orientationWidth[o], orientationHeight[o], rowCell[row] % width, rowCell[row] / width);
+
+        covered += orientationWidth[o] * orientationHeight[o];
+        if (covered > bestCovered) {
+            bestCovered = covered;
+            bestPartial = getPlacements();
+        }
+    }
+
+    /**
+     * Exactly undoes select(node).
+     */
+    private void unselect(int node) {
+        int row = rowOf[node];
+        int o = rowOrientation[row];
+        listener.cleared(orientationWidth[o], orientationHeight[o], rowCell[row] % width, rowCell[row] / width);
+        covered -= orientationWidth[o] * orientationHeight[o];
+        for (int j = previous(node); j != node; j = previous(j)) {
+            int c = column[j];
+            if (c <= cells)
+                uncover(c);
+            else if (remaining[c - 1 - cells]++ == 0)
+                uncover(c);
+        }
+    }
+
+    /**
+     * Searches for a solution.
+     *
+     * @return true if a complete solution was achieved, in which case it is left in place
+     */
+    public boolean explore() {
+        return search(false) > 0;
+    }
+
+    /**
+     * Searches the whole tree, counting every solution.
+     *
+     * @return How many distinct solutions there are
+     */
+    public long countSolutions() {
+        return search(true);
+    }
+
+    /**
+     * Algorithm X, with the recursion replaced by the `chosen` stack.
+     *
+     * @param all Whether to carry on after the first solution
+     * @return How many solutions were found
+     */
+    private long search(boolean all) {
+        if (!built && !build())
+            return 0;
+
+        long solutions = 0;
+        boolean descend = true;
+
+        while (true) {
+            if (descend) {
+                calls++;
+                if (right[ROOT] == ROOT) {
+                    // Every cell is covered.
+                    solutions++;
+                    if (!all)
+                        return solutions;
+                } else {
+                    if (calls >= limits.getCallLimit()) {
+                        outOfCalls = true;
+                        return solutions;
+                    }
+                    // Nodes here can take milliseconds each on a big board, so check every time.
+                    if (limits.calledOff())
+                        return solutions;
+
+                    // Choose the cell with the fewest ways left to cover it.
+                    int c = right[ROOT];
+                    for (int j = right[c]; j != ROOT; j = right[j]) {
+                        if (size[j] < size[c])
+                            c = j;
+                    }
+
+                    if (size[c] > 0) {
+                        cover(c);
+                        chosen[level] = down[c];
+                        select(chosen[level++]);
+                        continue;
+                    }
+                }
+            }
+
+            // Back up a level and move on to the next row in that column.
+            if (level == 0)
+                return solutions;
+            int node = chosen[--level];
+            unselect(node);
+            node = down[node];
+            if (node == column[node]) {
+                // That was the last row in the column.
+                uncover(node);
+                descend = false;
+            } else {
+                chosen[level] = node;
+                select(chosen[level++]);
+                descend = true;
+            }
+        }
+    }
+
+    /**
+     * @param limits When the search has to give up.  Defaults to Limits.NONE.
+     */
+    public void setLimits(Limits limits) {
+        this.limits = limits;
+    }
+
+    /**
+     * @return Whether the search gave up because it visited as many nodes as it was allowed to
+     */
+    public boolean isOutOfCalls() {
+        return outOfCalls;
+    }
+
+    /**
+     * @return The blocks that covered the most cells at any point so far, in the order they were placed
+     */
+    public List<Placement> getBestPartial() {
+        return bestPartial;
+    }
+
+    /**
+     * @return Every block of the current (partial) solution, in the order they were placed
+     */
+    public List<Placement> getPlacements() {
+        List<Placement> placements = new ArrayList<>();
+        for (int l = 0; l < level; l++) {
+            int row = rowOf[chosen[l]];
+            int o = rowOrientation[row];
+            placements.add(new Placement(rowCell[row] % width, rowCell[row] / width,
+                    orientationWidth[o], orientationHeight[o]));
+        }
+        return placements;
+    }
+
+    /**
+     * @return How many nodes of the search tree have been visited
+     */
+    public long getCalls() {
+        return calls;
+    }
+}
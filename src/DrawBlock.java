@@ -222,7 +222,7 @@ public class DrawBlock {
 
       boolean overlap(RectLoc other) {
          return this.r > other.l && this.l < other.r &&
-                 this.b > other.r && this.t < other.b;
+                 this.b > other.t && this.t < other.b;
       }
    }
 
@@ -0,0 +1,58 @@
+import java.util.List;
+
+/**
+ * Passes what a search is doing on to a DrawBlock, to print and animate it.
+ */
+public class DrawBlockListener implements SearchListener {
+
+    /**
+     * Where everything gets drawn.
+     */
+    private final DrawBlock drawBlock;
+
+    /**
+     * Whether to show every block as it is placed and removed, or only the solution.
+     */
+    private final boolean followSearch;
+
+    /**
+     * How many blocks the DrawBlock currently has placed.
+     */
+    private int depth;
+
+    /**
+     * @param drawBlock Where to draw everything.  It must already have been set up with the puzzle's board and blocks.
+     * @param followSearch Whether to show every block as it is placed and removed, rather than just the solution.
+     *                     Keeping DrawBlock up to date is expensive, even with animation turned off.
+     */
+    public DrawBlockListener(DrawBlock drawBlock, boolean followSearch) {
+        this.drawBlock = drawBlock;
+        this.followSearch = followSearch;
+    }
+
+    @Override
+    public void placed(int w, int h, int column, int row) {
+        if (followSearch) {
+            drawBlock.placeRect(w, h, column, row);
+            depth++;
+        }
+    }
+
+    @Override
+    public void cleared(int w, int h, int column, int row) {
+        if (followSearch) {
+            drawBlock.clearRect(w, h, column, row);
+            depth--;
+        }
+    }
+
+    @Override
+    public void solved(List<Placement> placements) {
+        // If the DrawBlock hasn't been following along, give it the whole solution now.
+        if (depth == 0) {
+            for (Placement placement : placements)
+                drawBlock.placeRect(placement.getWidth(), placement.getHeight(), placement.getColumn(), placement.getRow());
+            depth = placements.size();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * A guess at how big a search will be and how long it will take, made without running all of it.
+ */
+public class Estimate {
+
+    /**
+     * The best guess at how many nodes the search will visit, and a range it is 95% likely to be in.
+     */
+    private final double nodes;
+    private final double lowNodes;
+    private final double highNodes;
+
+    /**
+     * How long each node took in a short run of the real search, in nanoseconds.
+     */
+    private final double nanosPerNode;
+
+    /**
+     * How many random paths down the tree the guess is based on.
+     */
+    private final int probes;
+
+    /**
+     * Whether the search turned out to be small enough to just run, so the number of nodes is exact.
+     */
+    private final boolean exact;
+
+    /**
+     * @param nodes The best guess at how many nodes the search will visit
+     * @param lowNodes The bottom of the range the number of nodes is 95% likely to be in
+     * @param highNodes The top of that range
+     * @param nanosPerNode How long each node takes, in nanoseconds
+     * @param probes How many random paths down the tree the guess is based on
+     * @param exact Whether the number of nodes is known for certain
+     */
+    public Estimate(double nodes, double lowNodes, double highNodes, double nanosPerNode, int probes, boolean exact) {
+        this.nodes = nodes;
+        this.lowNodes = lowNodes;
+        this.highNodes = highNodes;
+        this.nanosPerNode = nanosPerNode;
+        this.probes = probes;
+        this.exact = exact;
+    }
+
+    /**
+     * @return The best guess at how many nodes the search will visit
+     */
+    public double getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return The bottom of the range the number of nodes is 95% likely to be in
+     */
+    public double getLowNodes() {
+        return lowNodes;
+    }
+
+    /**
+     * @return The top of the range the number of nodes is 95% likely to be in
+     */
+    public double getHighNodes() {
+        return highNodes;
+    }
+
+    /**
+     * @return How long each node took in a short run of the real search, in nanoseconds
+     */
+    public double getNanosPerNode() {
+        return nanosPerNode;
+    }
+
+    /**
+     * @return The best guess at how long the search will take on one thread, in milliseconds
+     */
+    public double getMillis() {
+        return nodes * nanosPerNode / 1e6;
+    }
+
+    /**
+     * @return The bottom of the range the time on one thread is 95% likely to be in, in milliseconds
+     */
+    public double getLowMillis() {
+        return lowNodes * nanosPerNode / 1e6;
+    }
+
+    /**
+     * @return The top of the range the time on one thread is 95% likely to be in, in milliseconds
+     */
+    public double getHighMillis() {
+        return highNodes * nanosPerNode / 1e6;
+    }
+
+    /**
+     * @return How many random paths down the tree the guess is based on
+     */
+    public int getProbes() {
+        return probes;
+    }
+
+    /**
+     * @return Whether the search was small enough to just run, so the number of nodes is exact
+     */
+    public boolean isExact() {
+        return exact;
+    }
+}
@@ -0,0 +1,139 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * When a search has to give up before it has tried everything: once it has visited a certain
+ * number of nodes, once a deadline passes, once somebody sets a stop flag, or once its thread
+ * is interrupted.
+ *
+ * Every engine checks the same calledOff() every so often, so they all give up for the same
+ * reasons.  Limits never change once made; withCallLimit() and withStop() make adjusted copies.
+ */
+public class Limits {
+
+    /**
+     * No limits at all, apart from interrupting the thread.
+     */
+    public static final Limits NONE = new Limits(null, false, 0, Long.MAX_VALUE);
+
+    /**
+     * The statistics addGiveUpReasons() sets to 1 to say why a search gave up.
+     */
+    public static final List<String> GIVE_UP_REASONS =
+            Collections.unmodifiableList(Arrays.asList("out of calls", "timed out", "interrupted", "stopped"));
+
+    /**
+     * When set, the search gives up as soon as it notices.  Null if nobody can call it off.
+     */
+    private final AtomicBoolean stop;
+
+    /**
+     * When the search has to give up by, from System.nanoTime(), if `timed` is set.
+     */
+    private final boolean timed;
+    private final long deadline;
+
+    /**
+     * How many nodes the search may visit.
+     */
+    private final long callLimit;
+
+    /**
+     * @param stop A flag that calls off the search when it's set, or null
+     * @param start When the clock started, from System.nanoTime()
+     * @param timeLimit How many milliseconds after `start` the search has to give up by, or Long.MAX_VALUE for no limit
+     * @param callLimit How many nodes the search may visit, or Long.MAX_VALUE for no limit
+     */
+    public Limits(AtomicBoolean stop, long start, long timeLimit, long callLimit) {
+        this(stop, timeLimit != Long.MAX_VALUE,
+                timeLimit != Long.MAX_VALUE ? start + TimeUnit.MILLISECONDS.toNanos(timeLimit) : 0, callLimit);
+    }
+
+    private Limits(AtomicBoolean stop, boolean timed, long deadline, long callLimit) {
+        this.stop = stop;
+        this.timed = timed;
+        this.deadline = deadline;
+        this.callLimit = callLimit;
+    }
+
+    /**
+     * @param callLimit How many nodes the search may visit
+     * @return The same limits, but with a different call limit
+     */
+    public Limits withCallLimit(long callLimit) {
+        return new Limits(stop, timed, deadline, callLimit);
+    }
+
+    /**
+     * @param stop A flag that calls off the search when it's set
+     * @return The same limits, but with a different stop flag
+     */
+    public Limits withStop(AtomicBoolean stop) {
+        return new Limits(stop, timed, deadline, callLimit);
+    }
+
+    /**
+     * @return Whether the search should give up now: it's been told to stop, it's out of time, or the current
+     *         thread has been interrupted.  The interrupt is left set for whoever is waiting on the search to see.
+     */
+    public boolean calledOff() {
+        return isStopped() || isTimedOut() || Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * @return Whether the stop flag has been set
+     */
+    public boolean isStopped() {
+        return stop != null && stop.get();
+    }
+
+    /**
+     * @return Whether the deadline has passed
+     */
+    public boolean isTimedOut() {
+        return timed && System.nanoTime() - deadline >= 0;
+    }
+
+    /**
+     * @return How many whole milliseconds are left before the deadline (0 or less once it has passed), or
+     *         Long.MAX_VALUE if there isn't one
+     */
+    public long getMillisLeft() {
+        return timed ? TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()) : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return How many nodes the search may visit
+     */
+    public long getCallLimit() {
+        return callLimit;
+    }
+
+    /**
+     * @return The stop flag, or null if there isn't one
+     */
+    public AtomicBoolean getStop() {
+        return stop;
+    }
+
+    /**
+     * Records why a search gave up, with the statistics from GIVE_UP_REASONS.
+     *
+     * @param statistics Where to record it
+     * @param outOfCalls Whether the search visited as many nodes as it was allowed to
+     */
+    public void addGiveUpReasons(Map<String, Long> statistics, boolean outOfCalls) {
+        if (outOfCalls)
+            statistics.put("out of calls", 1L);
+        if (isTimedOut())
+            statistics.put("timed out", 1L);
+        if (Thread.currentThread().isInterrupted())
+            statistics.put("interrupted", 1L);
+        if (isStopped())
+            statistics.put("stopped", 1L);
+    }
+}
@@ -0,0 +1,58 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Passes everything a search does on to another listener, after changing each placement some way.
+ *
+ * Used when the puzzle actually searched is a simpler version of the one asked about (scaled
+ * down, say), so whoever is listening sees blocks on the board they know about.
+ */
+public class MappedListener implements SearchListener {
+
+    /**
+     * The listener to pass everything on to.
+     */
+    private final SearchListener listener;
+
+    /**
+     * Turns a placement on the searched board into one on the listener's board.
+     */
+    private final UnaryOperator<Placement> map;
+
+    /**
+     * @param listener The listener to pass everything on to
+     * @param map Turns a placement on the searched board into one on the listener's board
+     */
+    public MappedListener(SearchListener listener, UnaryOperator<Placement> map) {
+        this.listener = listener;
+        this.map = map;
+    }
+
+    @Override
+    public void placed(int w, int h, int column, int row) {
+        Placement placement = map.apply(new Placement(column, row, w, h));
+        listener.placed(placement.getWidth(), placement.getHeight(), placement.getColumn(), placement.getRow());
+    }
+
+    @Override
+    public void cleared(int w, int h, int column, int row) {
+        Placement placement = map.apply(new Placement(column, row, w, h));
+        listener.cleared(placement.getWidth(), placement.getHeight(), placement.getColumn(), placement.getRow());
+    }
+
+    @Override
+    public void solved(List<Placement> placements) {
+        listener.solved(mapAll(placements, map));
+    }
+
+    /**
+     * @return Every placement in the list, changed by `map`
+     */
+    public static List<Placement> mapAll(List<Placement> placements, UnaryOperator<Placement> map) {
+        List<Placement> mapped = new ArrayList<>(placements.size());
+        for (Placement placement : placements)
+            mapped.add(map.apply(placement));
+        return mapped;
+    }
+}
@@ -0,0 +1,232 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runs the same search as Search, but on every available processor at once.
+ *
+ * The first few levels of the search tree are split up into independent subtrees, one for
+ * every way of placing those first blocks.  Each subtree gets its own Search (and so its own
+ * grid), and they are run as fork/join tasks so idle threads can steal work from busy ones.
+ * As soon as any of them finds a solution, the rest are told to stop.
+ */
+public class ParallelSearch {
+
+    /**
+     * How many levels of the search tree to split into separate tasks.  Each level multiplies
+     * the number of tasks by roughly the number of block types, which is plenty to keep every
+     * processor busy without drowning in tasks that only take a few microseconds each.
+     */
+    private static final int SPLIT_DEPTH = 3;
+
+    /**
+     * The puzzle being solved.
+     */
+    private final Puzzle puzzle;
+
+    /**
+     * Sets up each task's search before it starts, e.g. with a table of dead ends shared by all of them.
+     */
+    private final Consumer<Search> setup;
+
+    /**
+     * When every task has to give up.  There is always a stop flag, since it's also how a task that finds a
+     * solution calls off the rest.  The call limit covers all the tasks together.
+     */
+    private Limits limits = Limits.NONE.withStop(new AtomicBoolean());
+
+    /**
+     * Total number of nodes visited across all tasks.
+     */
+    private final AtomicLong calls = new AtomicLong();
+
+    /**
+     * Set once a task has run out of calls.
+     */
+    private volatile boolean outOfCalls;
+
+    /**
+     * The search that found a solution, left with the solution still on its grid.
+     */
+    private volatile Search solution;
+
+    /**
+     * The blocks that covered the most cells in any task, and how many cells that was.
+     */
+    private List<Placement> bestPartial = new ArrayList<>();
+    private int bestCovered;
+
+    /**
+     * The statistics of every task's search, added together.
+     */
+    private final Map<String, Long> statistics = new LinkedHashMap<>();
+
+    /**
+     * Sets up a parallel search.
+     *
+     * @param puzzle The puzzle to solve
+     * @param setup Called with each task's search before any blocks are placed, to set its options
+     */
+    public ParallelSearch(Puzzle puzzle, Consumer<Search> setup) {
+        this.puzzle = puzzle;
+        this.setup = setup;
+    }
+
+    /**
+     * Searches for a solution using every available processor.
+     *
+     * If the calling thread is interrupted while it waits, every task is told to stop (through the stop
+     * flag) and the interrupt is left set.
+     *
+     * @return true if a complete solution was achieved
+     */
+    public boolean explore() {
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            return pool.submit(new Task(new int[0])).get();
+        } catch (InterruptedException e) {
+            limits.getStop().set(true);
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+
+    /**
+     * @return Whether any task gave up because there were no calls left for it
+     */
+    public boolean isOutOfCalls() {
+        return outOfCalls;
+    }
+
+    /**
+     * Sets when the search has to give up.  This has to be called before explore().
+     *
+     * The call limit is only kept to roughly.  Each task gets whatever is left of it when it starts, so tasks
+     * running at the same time can go over by up to that much each.  If there's a stop flag, the search shares
+     * it with whoever else is interested, and sets it itself when it finds a solution.
+     *
+     * @param limits When to give up.  Defaults to Limits.NONE.
+     */
+    public void setLimits(Limits limits) {
+        this.limits = limits.getStop() != null ? limits : limits.withStop(new AtomicBoolean());
+    }
+
+    /**
+     * @return The search that found a solution, with all its blocks still placed, or null if there wasn't one
+     */
+    public Search getSolution() {
+        return solution;
+    }
+
+    /**
+     * @return How many nodes of the search tree have been visited, across all threads
+     */
+    public long getCalls() {
+        return calls.get();
+    }
+
+    /**
+     * @return Counts of the things the searches have done, by name, added up across all threads
+     */
+    public synchronized Map<String, Long> getStatistics() {
+        return new LinkedHashMap<>(statistics);
+    }
+
+    /**
+     * @return The blocks that covered the most cells at any point in any task, in the order they were placed
+     */
+    public synchronized List<Placement> getBestPartial() {
+        return bestPartial;
+    }
+
+    /**
+     * Adds a finished search's statistics to the totals, and keeps its best partial fill if it beats the rest.
+     */
+    private synchronized void addStatistics(Search search) {
+        for (Map.Entry<String, Long> entry : search.getStatistics().entrySet())
+            statistics.merge(entry.getKey(), entry.getValue(), Long::sum);
+        if (search.getBestCovered() > bestCovered) {
+            bestCovered = search.getBestCovered();
+            bestPartial = search.getBestPartial();
+        }
+    }
+
+    /**
+     * Searches the subtree below a given sequence of placements.
+     */
+    private class Task extends RecursiveTask<Boolean> {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The orientations of the blocks to place, in order, to get to the top of this subtree.
+         */
+        private final int[] prefix;
+
+        Task(int[] prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        protected Boolean compute() {
+            if (limits.calledOff())
+                return false;
+
+            Search search = new Search(puzzle, SearchListener.NONE);
+            setup.accept(search);
+            for (int orientation : prefix)
+                search.push(orientation);
+
+            if (prefix.length < SPLIT_DEPTH) {
+                // Split this node up, one task for each block that fits here.
+                List<Task> children = new ArrayList<>();
+                for (int orientation = search.nextFit(0); orientation >= 0; orientation = search.nextFit(orientation + 1)) {
+                    int[] childPrefix = Arrays.copyOf(prefix, prefix.length + 1);
+                    childPrefix[prefix.length] = orientation;
+                    children.add(new Task(childPrefix));
+                }
+
+                if (!children.isEmpty()) {
+                    calls.incrementAndGet();
+                    invokeAll(children);
+                    for (Task child : children) {
+                        if (child.join())
+                            return true;
+                    }
+                    return false;
+                }
+            }
+
+            // Deep enough (or nothing left to split) - search the rest of the way on this thread.
+            long left = limits.getCallLimit() - calls.get();
+            if (left <= 0) {
+                outOfCalls = true;
+                return false;
+            }
+            search.setLimits(limits.withCallLimit(left));
+            boolean solved = search.explore();
+            if (search.isOutOfCalls())
+                outOfCalls = true;
+            calls.addAndGet(search.getCalls());
+            addStatistics(search);
+            if (solved && limits.getStop().compareAndSet(false, true))
+                solution = search;
+            return solved;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * A block put down at a particular spot on the board.
+ */
+public class Placement {
+
+    /**
+     * Column and row of the block's upper left corner.
+     */
+    private final int column;
+    private final int row;
+
+    /**
+     * Width and height of the block, as it was put down.
+     */
+    private final int width;
+    private final int height;
+
+    /**
+     * @param column The column of the block's upper left corner
+     * @param row The row of the block's upper left corner
+     * @param width The width of the block as placed
+     * @param height The height of the block as placed
+     */
+    public Placement(int column, int row, int width, int height) {
+        this.column = column;
+        this.row = row;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * @return The column of the block's upper left corner
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * @return The row of the block's upper left corner
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * @return The width of the block as placed
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return The height of the block as placed
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @param factor How many times bigger to make everything
+     * @return The same placement on a board `factor` times as wide and as tall
+     */
+    public Placement scaledUp(int factor) {
+        return new Placement(column * factor, row * factor, width * factor, height * factor);
+    }
+
+    /**
+     * @return The same placement on the board flipped over its main diagonal, so columns become rows and rows columns
+     */
+    public Placement transposed() {
+        return new Placement(row, column, height, width);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d x %d at (%d, %d)", width, height, column, row);
+    }
+}
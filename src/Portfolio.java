@@ -0,0 +1,243 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Races several differently set up solvers against each other on the same puzzle, each on its
+ * own thread, and goes with whichever one finishes first.
+ *
+ * Which settings work best varies a lot from puzzle to puzzle, and a bad choice can take orders
+ * of magnitude longer than a good one.  Running a few at once means never waiting much longer
+ * than the best of them would have taken (times however many share each processor).
+ */
+public class Portfolio {
+
+    /**
+     * The solvers to race, and a name for each one for reporting.
+     */
+    private final List<Solver> solvers = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * Gets told about the winning solution.
+     */
+    private SearchListener listener = SearchListener.NONE;
+
+    /**
+     * Gets told about any solver that fails.
+     */
+    private Consumer<String> log = message -> {
+    };
+
+    /**
+     * The name of the solver that finished first in the last solve(), or null if none of them did.
+     */
+    private String winner;
+
+    /**
+     * Creates a portfolio with a standard lineup of solvers that tend to do well on different kinds of puzzle:
+     * first-empty and most-constrained branching, the board both ways round, the other block order, and
+     * dancing links.
+     *
+     * @param puzzle The puzzle to solve
+     * @param common Called with every solver before its own settings are applied, e.g. to set a table budget
+     * @return The portfolio
+     */
+    public static Portfolio standard(Puzzle puzzle, Consumer<Solver> common) {
+        Portfolio portfolio = new Portfolio();
+
+        Solver given = new Solver(puzzle);
+        common.accept(given);
+        given.setLayout(Solver.Layout.AS_GIVEN);
+        portfolio.add("first empty, as given", given);
+
+        Solver transposed = new Solver(puzzle);
+        common.accept(transposed);
+        transposed.setLayout(Solver.Layout.TRANSPOSED);
+        portfolio.add("first empty, transposed", transposed);
+
+        Solver constrained = new Solver(puzzle);
+        common.accept(constrained);
+        constrained.setBranching(Search.Branching.MOST_CONSTRAINED);
+        portfolio.add("most constrained", constrained);
+
+        Solver reordered = new Solver(puzzle.withLargestFirst(!puzzle.isLargestFirst()));
+        common.accept(reordered);
+        portfolio.add(puzzle.isLargestFirst() ? "first empty, blocks as given" : "first empty, largest first", reordered);
+
+        Solver dancingLinks = new Solver(puzzle);
+        common.accept(dancingLinks);
+        dancingLinks.setEngine(Solver.Engine.DANCING_LINKS);
+        portfolio.add("dancing links", dancingLinks);
+
+        return portfolio;
+    }
+
+    /**
+     * Adds a solver to the race.  Its listener should be left alone, since several solvers
+     * animating the same board at once would only make a mess of it.  Its stop flag is borrowed
+     * during solve(), but put back afterwards.
+     *
+     * @param name What to call the solver when it wins
+     * @param solver The solver, all set up
+     */
+    public void add(String name, Solver solver) {
+        names.add(name);
+        solvers.add(solver);
+    }
+
+    /**
+     * @param listener Gets told about the winning solution.  Defaults to SearchListener.NONE.
+     */
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param log Gets told about any solver that fails with an exception, e.g. a puzzle too big for dancing links
+     */
+    public void setLog(Consumer<String> log) {
+        this.log = log;
+    }
+
+    /**
+     * Runs every solver at once until one of them can say whether the puzzle can be solved, then calls off the rest
+     * and waits for them to notice.  Each solver's stop flag is swapped for the race's own while it runs, and put
+     * back afterwards.
+     *
+     * A solver that fails with an exception (or an error, e.g. running out of memory building a dancing links
+     * matrix) drops out of the race and the rest carry on.  The failure is only passed on if every one of them fails.
+     *
+     * @return The winning solver's result, but with every solver's calls added up and the time the whole race took.
+     *         If none of them could tell, a result with Result.Status.UNKNOWN, all their calls added up, the biggest
+     *         of their partial fills and every reason they gave for giving up, including "failed" for how many of
+     *         them failed.
+     */
+    public Result solve() {
+        long start = System.nanoTime();
+        AtomicBoolean stop = new AtomicBoolean();
+        Result[] results = new Result[solvers.size()];
+        Throwable[] failures = new Throwable[solvers.size()];
+        AtomicBoolean[] ownStops = new AtomicBoolean[solvers.size()];
+        winner = null;
+        int won = -1;
+        int failed = 0;
+
+        // Losers may take a moment to notice they've been called off (building a dancing links matrix,
+        // say), so don't let them hold up the program exiting.
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, solvers.size()), runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletionService<Integer> finished = new ExecutorCompletionService<>(pool);
+        int running = 0;
+        try {
+            for (int i = 0; i < solvers.size(); i++) {
+                Solver solver = solvers.get(i);
+                int index = i;
+                ownStops[i] = solver.getStop();
+                solver.setStop(stop);
+                finished.submit(() -> {
+                    try {
+                        results[index] = solver.solve();
+                    } catch (Throwable e) {
+                        failures[index] = e;
+                    }
+                    return index;
+                });
+                running++;
+            }
+
+            for (; running > 0 && won < 0; running--) {
+                int i = finished.take().get();
+                if (failures[i] != null) {
+                    log.accept(names.get(i) + " failed: " + failures[i]);
+                    failed++;
+                } else if (results[i].getStatus() != Result.Status.UNKNOWN) {
+                    won = i;
+                    winner = names.get(i);
+                    if (results[i].isSolved())
+                        listener.solved(results[i].getPlacements());
+                }
+            }
+
+            // Wait for the rest to give up, so their calls can be counted too.
+            stop.set(true);
+            for (; running > 0; running--) {
+                int i = finished.take().get();
+                if (failures[i] != null) {
+                    log.accept(names.get(i) + " failed: " + failures[i]);
+                    failed++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Every task catches its own failures, so this shouldn't happen.
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            stop.set(true);
+            pool.shutdown();
+            // Anything still running has already made its limits from the race's flag.
+            for (int i = 0; i < solvers.size(); i++)
+                solvers.get(i).setStop(ownStops[i]);
+        }
+
+        if (won < 0 && failed == solvers.size() && failed > 0) {
+            Throwable first = failures[0];
+            if (first instanceof RuntimeException)
+                throw (RuntimeException) first;
+            if (first instanceof Error)
+                throw (Error) first;
+            throw new IllegalStateException(first);
+        }
+
+        long calls = 0;
+        List<Placement> partial = Collections.emptyList();
+        int partialArea = 0;
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        for (Result result : results) {
+            if (result == null)
+                continue;
+            calls += result.getCalls();
+            if (result.getPartialArea() > partialArea) {
+                partial = result.getPartial();
+                partialArea = result.getPartialArea();
+            }
+            for (String reason : Limits.GIVE_UP_REASONS) {
+                if (result.getStatistics().containsKey(reason))
+                    statistics.put(reason, 1L);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        if (won >= 0) {
+            Result best = results[won];
+            return new Result(best.getStatus(), best.getPlacements(), best.getPartial(), best.getSolutions(), calls,
+                    elapsed, best.getStatistics());
+        }
+        if (failed > 0)
+            statistics.put("failed", (long) failed);
+        if (Thread.currentThread().isInterrupted())
+            statistics.put("interrupted", 1L);
+        return new Result(Result.Status.UNKNOWN, Collections.<Placement>emptyList(), partial, 0, calls, elapsed,
+                statistics);
+    }
+
+    /**
+     * @return The name of the solver that won the last solve(), or null if none of them finished
+     */
+    public String getWinner() {
+        return winner;
+    }
+}
@@ -0,0 +1,470 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+
+/**
+ * A board plus a set of blocks to place on it.
+ *
+ * Besides the blocks as given, a puzzle works out the tables the search runs off of:
+ * the distinct types of block and how many there are of each, and every distinct
+ * orientation of each type.  A puzzle never changes once it has been built, so any
+ * number of solvers can work on the same one at once.
+ */
+public class Puzzle {
+
+    /**
+     * Hacky constants for getting parts of blocks as if they were object properties.
+     *
+     * rect[x] is... something like rect.x I guess?
+     */
+    static final int x = 0;
+    static final int y = 1;
+    static final int rotates = 2;
+
+    /**
+     * Width and height of the grid to place all the blocks on.
+     */
+    private final int width;
+    private final int height;
+
+    /**
+     * List of blocks to place, in the order they were given.
+     *
+     * A block, throughout this program, is described as a three-element int[] where the
+     * first element is the block's width, the second element the block's height, and the
+     * third is nonzero if the block may be turned so that its width and height are swapped.
+     */
+    private final List<int[]> blocks;
+
+    /**
+     * Whether the search tries the biggest blocks first, rather than going in the order they were given.
+     */
+    private final boolean largestFirst;
+
+    /**
+     * The distinct kinds of block in `blocks`.  Blocks with the same dimensions (counting
+     * w x h and h x w as the same, if they can be turned) are interchangeable, so the search
+     * only ever tries one of each kind at a given spot instead of once per copy.
+     *
+     * Type `t` is a typeWidth[t] x typeHeight[t] block, as it was first given.
+     */
+    private final int[] typeWidth;
+    private final int[] typeHeight;
+
+    /**
+     * How many blocks of each type there are.
+     */
+    private final int[] counts;
+
+    /**
+     * Every way a block can be put down, precomputed so the search never has to build a reversed block.
+     *
+     * Orientation `o` is an orientationWidth[o] x orientationHeight[o] rectangle of block
+     * type orientationType[o].  They are listed in the order the search tries them.
+     */
+    private final int[] orientationWidth;
+    private final int[] orientationHeight;
+    private final int[] orientationType;
+
+    /**
+     * orientationsByWidth[n] lists every orientation that is at most `n` cells wide and no taller
+     * than the board, in the order the search tries them.  Only these can go at the start of a
+     * run of `n` empty cells, so the search never has to look at the rest.
+     */
+    private final int[][] orientationsByWidth;
+
+    /**
+     * Creates a puzzle.
+     *
+     * @param width The width of the board
+     * @param height The height of the board
+     * @param blocks The blocks to place, each as {width, height, rotates}
+     * @throws IllegalArgumentException If the board or a block is empty, a block is bigger than the board,
+     *                                  or the blocks don't add up to the area of the board
+     */
+    public Puzzle(int width, int height, List<int[]> blocks) {
+        // Sorting tends to help with extremely large problems, as it's hard to place a giant block down last.
+        this(width, height, blocks, blocks.size() > 8);
+    }
+
+    /**
+     * Creates a puzzle, choosing the order the search tries the blocks in.
+     *
+     * @param width The width of the board
+     * @param height The height of the board
+     * @param blocks The blocks to place, each as {width, height, rotates}
+     * @param largestFirst Whether to try the largest (by area) blocks first, rather than in the order given
+     * @throws IllegalArgumentException If the board or a block is empty, a block is bigger than the board,
+     *                                  or the blocks don't add up to the area of the board
+     */
+    public Puzzle(int width, int height, List<int[]> blocks, boolean largestFirst) {
+        if (width < 1 || height < 1)
+            throw new IllegalArgumentException(String.format("Bad board size %d x %d", width, height));
+
+        int area = 0;
+        for (int[] block : blocks) {
+            if (block[x] < 1 || block[y] < 1 || Math.max(block[x], block[y]) > Math.max(width, height))
+                throw new IllegalArgumentException(String.format("Bad block size %d x %d", block[x], block[y]));
+            area += block[x] * block[y];
+        }
+        if (area != width * height)
+            throw new IllegalArgumentException(String.format(
+                    "Total size of all blocks (%d) is not equal to size of board (%d)", area, width * height));
+
+        this.width = width;
+        this.height = height;
+
+        List<int[]> given = new ArrayList<>();
+        for (int[] block : blocks)
+            given.add(block.clone());
+        this.blocks = Collections.unmodifiableList(given);
+
+        // This puts the largest (by area) blocks at the front of the list, so they are placed first.
+        List<int[]> sorted = new ArrayList<>(given);
+        if (largestFirst)
+            sorted.sort(Comparator.comparingInt(block -> -block[x] * block[y]));
+        this.largestFirst = largestFirst;
+
+        // Group identical blocks into types, keeping the order of each type's first appearance.
+        List<int[]> types = new ArrayList<>();
+        List<Integer> typeCounts = new ArrayList<>();
+        for (int[] block : sorted) {
+            int type = 0;
+            while (type < types.size() && !sameShape(types.get(type), block))
+                type++;
+            if (type == types.size()) {
+                types.add(block);
+                typeCounts.add(0);
+            }
+            typeCounts.set(type, typeCounts.get(type) + 1);
+        }
+
+        int typeCount = types.size();
+        typeWidth = new int[typeCount];
+        typeHeight = new int[typeCount];
+        counts = new int[typeCount];
+        for (int t = 0; t < typeCount; t++) {
+            typeWidth[t] = types.get(t)[x];
+            typeHeight[t] = types.get(t)[y];
+            counts[t] = typeCounts.get(t);
+        }
+
+        // Each type is tried as given and then, unless turning it wouldn't change anything
+        // or it isn't allowed to turn, flipped around so that its width and height are swapped.
+        int orientationCount = 0;
+        for (int[] type : types)
+            orientationCount += distinctOrientations(type);
+
+        orientationWidth = new int[orientationCount];
+        orientationHeight = new int[orientationCount];
+        orientationType = new int[orientationCount];
+        int orientation = 0;
+        for (int t = 0; t < typeCount; t++) {
+            orientationWidth[orientation] = typeWidth[t];
+            orientationHeight[orientation] = typeHeight[t];
+            orientationType[orientation++] = t;
+            if (distinctOrientations(types.get(t)) == 2) {
+                orientationWidth[orientation] = typeHeight[t];
+                orientationHeight[orientation] = typeWidth[t];
+                orientationType[orientation++] = t;
+            }
+        }
+
+        orientationsByWidth = indexByWidth();
+    }
+
+    /**
+     * Copies a puzzle, but with its orientations in a different order.  Types stay exactly the same.
+     *
+     * @param puzzle The puzzle to copy
+     * @param order order[i] is the orientation of `puzzle` to put in position `i`
+     */
+    private Puzzle(Puzzle puzzle, int[] order) {
+        this.width = puzzle.width;
+        this.height = puzzle.height;
+        this.blocks = puzzle.blocks;
+        this.largestFirst = puzzle.largestFirst;
+        this.typeWidth = puzzle.typeWidth;
+        this.typeHeight = puzzle.typeHeight;
+        this.counts = puzzle.counts;
+
+        orientationWidth = new int[order.length];
+        orientationHeight = new int[order.length];
+        orientationType = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            orientationWidth[i] = puzzle.orientationWidth[order[i]];
+            orientationHeight[i] = puzzle.orientationHeight[order[i]];
+            orientationType[i] = puzzle.orientationType[order[i]];
+        }
+        orientationsByWidth = indexByWidth();
+    }
+
+    /**
+     * @return The orientations that fit in each run length, see getOrientationsByWidth()
+     */
+    private int[][] indexByWidth() {
+        int[][] index = new int[width + 1][];
+        for (int n = 0; n <= width; n++) {
+            int fitting = 0;
+            for (int o = 0; o < orientationType.length; o++) {
+                if (orientationWidth[o] <= n && orientationHeight[o] <= height)
+                    fitting++;
+            }
+            index[n] = new int[fitting];
+            fitting = 0;
+            for (int o = 0; o < orientationType.length; o++) {
+                if (orientationWidth[o] <= n && orientationHeight[o] <= height)
+                    index[n][fitting++] = o;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Reads a puzzle.
+     *
+     * The input holds the board's width and height, the number of blocks, and then the width
+     * and height of each block.  A block's dimensions may be followed by the word "fixed" to
+     * say that it has to be placed exactly as given, without turning it.
+     *
+     * @param input The input data
+     * @return The puzzle described by the input
+     */
+    public static Puzzle read(Scanner input) {
+        int width = input.nextInt();
+        int height = input.nextInt();
+        int blockCount = input.nextInt();
+
+        List<int[]> blocks = new ArrayList<>();
+        for (int i = 0; i < blockCount; i++) {
+            int[] block = {input.nextInt(), input.nextInt(), 1};
+            if (input.hasNext("fixed")) {
+                input.next();
+                block[rotates] = 0;
+            }
+            blocks.add(block);
+        }
+
+        return new Puzzle(width, height, blocks);
+    }
+
+    /**
+     * @param block A block
+     * @return How many different ways the block can be put down - 2 if it can be turned and isn't square, otherwise 1.
+     */
+    private static int distinctOrientations(int[] block) {
+        return block[rotates] != 0 && block[x] != block[y] ? 2 : 1;
+    }
+
+    /**
+     * @param a A block
+     * @param b Another block
+     * @return Whether the blocks are the same, possibly after turning them if they are allowed to turn
+     */
+    private static boolean sameShape(int[] a, int[] b) {
+        if (a[rotates] != b[rotates])
+            return false;
+        return (a[x] == b[x] && a[y] == b[y]) || (a[rotates] != 0 && a[x] == b[y] && a[y] == b[x]);
+    }
+
+    /**
+     * Quick checks that rule out some puzzles without any searching.
+     *
+     * Every block has to fit on the board one way or another, and since every row of the board is
+     * covered by blocks side by side, the board's width has to be the sum of the widths of some of
+     * the blocks (in whichever way each one is turned).  The same goes for columns and heights.
+     *
+     * @return false if the puzzle definitely can't be solved, true if it might be
+     */
+    public boolean mightBeSolvable() {
+        long[] across = new long[SubsetSums.words(width)];
+        long[] down = new long[SubsetSums.words(height)];
+        SubsetSums.clear(across, 0, across.length);
+        SubsetSums.clear(down, 0, down.length);
+
+        for (int t = 0; t < counts.length; t++) {
+            // The orientations of this type that fit on the board at all.
+            int first = -1;
+            int second = -1;
+            for (int o = 0; o < orientationType.length; o++) {
+                if (orientationType[o] != t || orientationWidth[o] > width || orientationHeight[o] > height)
+                    continue;
+                if (first < 0)
+                    first = o;
+                else
+                    second = o;
+            }
+            if (first < 0)
+                return false;
+            if (second < 0)
+                second = first;
+
+            for (int n = 0; n < counts[t]; n++) {
+                SubsetSums.add(across, 0, across.length, width, orientationWidth[first], orientationWidth[second]);
+                SubsetSums.add(down, 0, down.length, height, orientationHeight[first], orientationHeight[second]);
+            }
+        }
+        return SubsetSums.contains(across, 0, width) && SubsetSums.contains(down, 0, height);
+    }
+
+    /**
+     * @return The greatest common divisor of the board's sides and every block's sides.  Every
+     *         solution lines up on a grid of squares this big, so the puzzle can be solved at
+     *         that scale instead - see scaledDown().
+     */
+    public int getScale() {
+        int scale = gcd(width, height);
+        for (int[] block : blocks)
+            scale = gcd(scale, gcd(block[x], block[y]));
+        return scale;
+    }
+
+    /**
+     * @param scale A number that divides the board's sides and every block's sides, e.g. getScale()
+     * @return The same puzzle with everything `scale` times smaller
+     */
+    public Puzzle scaledDown(int scale) {
+        List<int[]> smaller = new ArrayList<>();
+        for (int[] block : blocks)
+            smaller.add(new int[]{block[x] / scale, block[y] / scale, block[rotates]});
+        return new Puzzle(width / scale, height / scale, smaller, largestFirst);
+    }
+
+    /**
+     * @return The same puzzle flipped over its main diagonal: the board's width and height swapped,
+     *         and every block's too
+     */
+    public Puzzle transposed() {
+        List<int[]> flipped = new ArrayList<>();
+        for (int[] block : blocks)
+            flipped.add(new int[]{block[y], block[x], block[rotates]});
+        return new Puzzle(height, width, flipped, largestFirst);
+    }
+
+    /**
+     * @return Whether the blocks are tried largest first, rather than in the order they were given
+     */
+    public boolean isLargestFirst() {
+        return largestFirst;
+    }
+
+    /**
+     * @param largestFirst Whether to try the largest blocks first, rather than in the order they were given
+     * @return The same puzzle, with its blocks tried in that order
+     */
+    public Puzzle withLargestFirst(boolean largestFirst) {
+        return largestFirst == this.largestFirst ? this : new Puzzle(width, height, blocks, largestFirst);
+    }
+
+    /**
+     * @param random Where to get the new order from
+     * @return The same puzzle, but with its orientations tried in a random order.  Block types are numbered
+     *         the same way, so a TranspositionTable for this puzzle works for the copy too.
+     */
+    public Puzzle shuffled(Random random) {
+        int[] order = new int[orientationType.length];
+        for (int i = 0; i < order.length; i++) {
+            int j = random.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+        return new Puzzle(this, order);
+    }
+
+    /**
+     * @param priority A score for each block type
+     * @param random Where to get the order of types with the same score from
+     * @return The same puzzle, but with the orientations of the highest scoring types tried first, and ties
+     *         broken randomly.  Block types are numbered the same way, like shuffled().
+     */
+    public Puzzle prioritized(double[] priority, Random random) {
+        Puzzle shuffled = shuffled(random);
+        Integer[] order = new Integer[orientationType.length];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        // The sort is stable, so ties stay in their shuffled order.
+        Arrays.sort(order, Comparator.comparingDouble(o -> -priority[shuffled.orientationType[o]]));
+
+        int[] orientations = new int[order.length];
+        for (int i = 0; i < order.length; i++)
+            orientations[i] = order[i];
+        return new Puzzle(shuffled, orientations);
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * @return The width of the board
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return The height of the board
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return The blocks to place, each as {width, height, rotates}.  The arrays must not be modified.
+     */
+    public List<int[]> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * @return How many blocks there are in total
+     */
+    public int getBlockCount() {
+        return blocks.size();
+    }
+
+    /**
+     * @return How many blocks of each type there are.  The array must not be modified.
+     */
+    int[] getCounts() {
+        return counts;
+    }
+
+    /**
+     * @return The width of each orientation.  The array must not be modified.
+     */
+    int[] getOrientationWidth() {
+        return orientationWidth;
+    }
+
+    /**
+     * @return The height of each orientation.  The array must not be modified.
+     */
+    int[] getOrientationHeight() {
+        return orientationHeight;
+    }
+
+    /**
+     * @return The block type of each orientation.  The array must not be modified.
+     */
+    int[] getOrientationType() {
+        return orientationType;
+    }
+
+    /**
+     * @return For each run length `n`, the orientations that are at most `n` cells wide and fit on the board,
+     *         in increasing order.  The arrays must not be modified.
+     */
+    int[][] getOrientationsByWidth() {
+        return orientationsByWidth;
+    }
+}
@@ -0,0 +1,224 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Runs the same search as Search over and over, each time trying blocks in a different random
+ * order and giving up after a certain number of nodes, until one of the runs gets to the end.
+ *
+ * How long a backtracking search takes depends hugely on its first few choices, and a bad one
+ * can take forever to back out of.  Starting over with a different order every so often gives
+ * a good order a chance to turn up.  The number of nodes each run gets follows the Luby sequence
+ * (1, 1, 2, 1, 1, 2, 4, 1, 1, 2, ...) times UNIT, so runs get longer and longer overall, and a
+ * puzzle that needs a long run still gets one eventually.
+ *
+ * Every run's order comes from a single seed, so the same seed always makes the same runs, and
+ * each run is reported to a log as it finishes.  A run can't be replayed on its own, though: its
+ * order also depends on the activity scores left by the runs before it, and what it prunes on the
+ * table of dead ends they share.  So the log gives the seed and the run's number, and a good run
+ * is found again by replaying the whole seed up to it.
+ */
+public class RestartSearch {
+
+    /**
+     * The number of nodes a run gets for each 1 in the Luby sequence.
+     */
+    public static final long UNIT = 1024;
+
+    /**
+     * The puzzle being solved.
+     */
+    private final Puzzle puzzle;
+
+    /**
+     * Sets up each run's search before it starts.
+     */
+    private final Consumer<Search> setup;
+
+    /**
+     * Where every run's order comes from.
+     */
+    private final long seed;
+
+    /**
+     * Gets told about each run as it finishes.
+     */
+    private Consumer<String> log = message -> {
+    };
+
+    /**
+     * Keeps score of which block types get left over at dead ends, across every run.
+     */
+    private final Activity activity;
+
+    /**
+     * When to give up on the current run and not start any more.  The call limit covers all the runs together.
+     */
+    private Limits limits = Limits.NONE;
+
+    /**
+     * Set when the runs give up because of the call limit.
+     */
+    private boolean outOfCalls;
+
+    /**
+     * Total number of nodes visited across all runs.
+     */
+    private long calls;
+
+    /**
+     * How many runs ran out of nodes and had to start over.
+     */
+    private long restarts;
+
+    /**
+     * The run that found a solution, left with the solution still on its grid.
+     */
+    private Search solution;
+
+    /**
+     * The blocks that covered the most cells in any run, and how many cells that was.
+     */
+    private List<Placement> bestPartial = new ArrayList<>();
+    private int bestCovered;
+
+    /**
+     * The statistics of every run's search, added together.
+     */
+    private final Map<String, Long> statistics = new LinkedHashMap<>();
+
+    /**
+     * Sets up a restarting search.
+     *
+     * @param puzzle The puzzle to solve
+     * @param setup Called with each run's search before any blocks are placed, to set its options.  A table
+     *              of dead ends can be shared by every run, since the runs' puzzles only differ in order.
+     * @param seed Where every run's block order comes from
+     */
+    public RestartSearch(Puzzle puzzle, Consumer<Search> setup, long seed) {
+        this.puzzle = puzzle;
+        this.setup = setup;
+        this.seed = seed;
+        this.activity = new Activity(puzzle.getCounts().length);
+    }
+
+    /**
+     * @param log Gets told each run's number, the seed it came from, its node budget and its outcome as it finishes
+     */
+    public void setLog(Consumer<String> log) {
+        this.log = log;
+    }
+
+    /**
+     * @param limits When to give up.  The call limit is for all the runs together, so the last run's budget is
+     *               cut short to fit.  Defaults to Limits.NONE.
+     */
+    public void setLimits(Limits limits) {
+        this.limits = limits;
+    }
+
+    /**
+     * @return Whether the runs gave up because they visited as many nodes as they were allowed to
+     */
+    public boolean isOutOfCalls() {
+        return outOfCalls;
+    }
+
+    /**
+     * Runs searches until one of them finds a solution or tries everything.
+     *
+     * @return true if a complete solution was achieved, false if there isn't one or the search was stopped
+     *         (or ran out of time or calls)
+     */
+    public boolean explore() {
+        Random random = new Random(seed);
+        for (long run = 1; ; run++) {
+            long runSeed = random.nextLong();
+            long budget = Math.min(UNIT * luby(run), limits.getCallLimit() - calls);
+
+            // Try the blocks that have caused the most trouble so far first.  Ties, including
+            // everything on the first run, go in a random order.
+            Search search = new Search(puzzle.prioritized(activity.getScores(), new Random(runSeed)), SearchListener.NONE);
+            search.setActivity(activity);
+            setup.accept(search);
+            search.setLimits(limits.withCallLimit(budget));
+
+            boolean solved = search.explore();
+            calls += search.getCalls();
+            for (Map.Entry<String, Long> entry : search.getStatistics().entrySet())
+                statistics.merge(entry.getKey(), entry.getValue(), Long::sum);
+            if (search.getBestCovered() > bestCovered) {
+                bestCovered = search.getBestCovered();
+                bestPartial = search.getBestPartial();
+            }
+
+            // A run that gave up early for any other reason than its budget was stopped, ran out of time or was
+            // interrupted, and so was every run after it would be.  One that didn't give up tried everything.
+            boolean calledOff = !solved && !search.isOutOfCalls() && limits.calledOff();
+            String outcome = solved ? "solved" : search.isOutOfCalls() ? "out of calls"
+                    : calledOff ? "called off" : "tried everything";
+            log.accept(String.format("run %d of seed %d: budget %d calls, %s after %d calls",
+                    run, seed, budget, outcome, search.getCalls()));
+
+            if (solved) {
+                solution = search;
+                return true;
+            }
+            if (!search.isOutOfCalls())
+                return false;
+            if (calls >= limits.getCallLimit()) {
+                outOfCalls = true;
+                return false;
+            }
+            restarts++;
+        }
+    }
+
+    /**
+     * @param i A position in the sequence, from 1
+     * @return The i'th number in the Luby sequence: 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, ...
+     */
+    static long luby(long i) {
+        while (true) {
+            // The sequence is made of blocks of length 2^k - 1 that each end in 2^(k - 1), with
+            // everything before the end of a block being the sequence so far, repeated twice.
+            int k = 64 - Long.numberOfLeadingZeros(i);
+            if (i == (1L << k) - 1)
+                return 1L << (k - 1);
+            i -= (1L << (k - 1)) - 1;
+        }
+    }
+
+    /**
+     * @return The run that found a solution, with all its blocks still placed, or null if none did
+     */
+    public Search getSolution() {
+        return solution;
+    }
+
+    /**
+     * @return The blocks that covered the most cells at any point in any run, in the order they were placed
+     */
+    public List<Placement> getBestPartial() {
+        return bestPartial;
+    }
+
+    /**
+     * @return How many nodes of the search tree have been visited, across all runs
+     */
+    public long getCalls() {
+        return calls;
+    }
+
+    /**
+     * @return Counts of the things the runs have done, by name, added up across all of them
+     */
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> totals = new LinkedHashMap<>(statistics);
+        totals.put("restarts", restarts);
+        return totals;
+    }
+}
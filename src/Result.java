@@ -0,0 +1,160 @@
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What came of trying to solve a puzzle.
+ */
+public class Result {
+
+    /**
+     * The ways a solve can end.
+     */
+    public enum Status {
+        /**
+         * Every block was placed.
+         */
+        SOLVED,
+        /**
+         * Every possibility was tried, and none of them worked.
+         */
+        UNSOLVABLE,
+        /**
+         * The search was called off before it could tell either way.
+         */
+        UNKNOWN
+    }
+
+    private final Status status;
+
+    /**
+     * The blocks of the solution, in the order they were placed.  Empty unless the puzzle was solved.
+     */
+    private final List<Placement> placements;
+
+    /**
+     * The blocks of the biggest partial fill the search came across, by area, in the order they were placed.
+     * The solution itself if there is one.
+     */
+    private final List<Placement> partial;
+
+    /**
+     * How many solutions were found - at most one, unless the solver was asked to count them all.
+     */
+    private final long solutions;
+
+    /**
+     * How many nodes of the search tree were visited.
+     */
+    private final long calls;
+
+    /**
+     * How long the solve took, in nanoseconds.
+     */
+    private final long elapsedNanos;
+
+    /**
+     * Counts of other things the search did, by name, e.g. how often a shortcut paid off.
+     */
+    private final Map<String, Long> statistics;
+
+    /**
+     * @param status How the solve ended
+     * @param placements The blocks of the solution, if there is one
+     * @param solutions How many solutions were found
+     * @param calls How many nodes of the search tree were visited
+     * @param elapsedNanos How long the solve took, in nanoseconds
+     * @param statistics Counts of other things the search did, by name
+     */
+    public Result(Status status, List<Placement> placements, long solutions, long calls, long elapsedNanos,
+                  Map<String, Long> statistics) {
+        this(status, placements, placements, solutions, calls, elapsedNanos, statistics);
+    }
+
+    /**
+     * @param status How the solve ended
+     * @param placements The blocks of the solution, if there is one
+     * @param partial The blocks of the biggest partial fill found
+     * @param solutions How many solutions were found
+     * @param calls How many nodes of the search tree were visited
+     * @param elapsedNanos How long the solve took, in nanoseconds
+     * @param statistics Counts of other things the search did, by name
+     */
+    public Result(Status status, List<Placement> placements, List<Placement> partial, long solutions, long calls,
+                  long elapsedNanos, Map<String, Long> statistics) {
+        this.status = status;
+        this.placements = Collections.unmodifiableList(placements);
+        this.partial = Collections.unmodifiableList(partial);
+        this.solutions = solutions;
+        this.calls = calls;
+        this.elapsedNanos = elapsedNanos;
+        this.statistics = Collections.unmodifiableMap(statistics);
+    }
+
+    /**
+     * @return How the solve ended
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return Whether every block was placed
+     */
+    public boolean isSolved() {
+        return status == Status.SOLVED;
+    }
+
+    /**
+     * @return The blocks of the solution in the order they were placed, or an empty list if there is no solution
+     */
+    public List<Placement> getPlacements() {
+        return placements;
+    }
+
+    /**
+     * @return The blocks of the biggest partial fill the search came across, by area covered, in the order they
+     *         were placed.  The same as getPlacements() if the puzzle was solved.
+     */
+    public List<Placement> getPartial() {
+        return partial;
+    }
+
+    /**
+     * @return How many cells the blocks from getPartial() cover
+     */
+    public int getPartialArea() {
+        int area = 0;
+        for (Placement placement : partial)
+            area += placement.getWidth() * placement.getHeight();
+        return area;
+    }
+
+    /**
+     * @return How many solutions were found.  Only more than one if the solver was asked to count them all.
+     */
+    public long getSolutions() {
+        return solutions;
+    }
+
+    /**
+     * @return How many nodes of the search tree were visited
+     */
+    public long getCalls() {
+        return calls;
+    }
+
+    /**
+     * @return How long the solve took, in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    /**
+     * @return Counts of other things the search did, by name, in the order they should be reported
+     */
+    public Map<String, Long> getStatistics() {
+        return statistics;
+    }
+}
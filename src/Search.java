@@ -0,0 +1,912 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Backtracking search that places blocks on a grid one at a time, each one with its upper
+ * left corner on an empty cell that has filled cells above it and to its left, until the
+ * grid is full or every possibility has been tried.  Normally that cell is simply the first
+ * empty one, but the search can instead pick whichever such cell has the fewest blocks that fit.
+ *
+ * Rather than recursing once per placed block, the search keeps its own stack of
+ * placements in a pair of int arrays, so the number of blocks isn't limited by the
+ * Java call stack and the whole state of the search is out in the open.
+ */
+public class Search {
+
+    /**
+     * The ways of picking which cell to cover next.
+     */
+    public enum Branching {
+        /**
+         * Always the first empty cell, going across each row and then down.
+         */
+        FIRST_EMPTY,
+        /**
+         * The empty cell, out of those with filled cells above and to the left, that the fewest blocks
+         * fit on.  Takes longer per node, but dead ends tend to show up much sooner.
+         */
+        MOST_CONSTRAINED
+    }
+
+    /**
+     * Width and height of the grid to place all the blocks on.
+     */
+    private final int width;
+    private final int height;
+
+    /**
+     * Every way a block can be put down, in the order they are tried.
+     *
+     * Orientation `o` is an orientationWidth[o] x orientationHeight[o] rectangle of block type orientationType[o].
+     */
+    private final int[] orientationWidth;
+    private final int[] orientationHeight;
+    private final int[] orientationType;
+
+    /**
+     * The orientations that could start a run of each length, see Puzzle.getOrientationsByWidth().
+     */
+    private final int[][] orientationsByWidth;
+
+    /**
+     * How many blocks of each type have not been placed on the grid yet.
+     */
+    private final int[] remaining;
+
+    /**
+     * The widths each block type can take up in a row: sideA[t], or sideB[t] if it is turned.
+     * The two are the same for blocks that are square or can't be turned.
+     */
+    private final int[] sideA;
+    private final int[] sideB;
+
+    /**
+     * A stack of subset sum sets (see SubsetSums), `runWords` longs each.  The set at depth `d`
+     * holds every length of run that the blocks left at that depth can fill exactly, side by side.
+     *
+     * The run of empty cells starting at the cursor has filled cells (or the edge) above it and
+     * to its left, so the blocks covering it all have their top edges in this row and exactly
+     * fill it from end to end.  If no combination of the blocks left adds up to its length,
+     * there's no point trying any of them.
+     */
+    private final long[] runSums;
+    private final int runWords;
+
+    /**
+     * How many nodes were abandoned because the run at the cursor couldn't be filled.
+     */
+    private long runPrunes;
+
+    /**
+     * The heights each block type can take up in a column, like sideA and sideB for rows.
+     */
+    private final int[] heightA;
+    private final int[] heightB;
+
+    /**
+     * A stack of subset sum sets like runSums, `columnWords` longs each, of the heights the
+     * blocks left at each depth can add up to.
+     */
+    private final long[] columnSums;
+    private final int columnWords;
+
+    /**
+     * How many cells are still empty in each row and each column.
+     *
+     * Every block covering part of a row covers its whole width of that row, so the empty cells
+     * in a row have to add up to the widths of some of the blocks left - and the same goes for
+     * columns and heights.  Unlike the run at the cursor, this holds for every row and column at
+     * once, so it catches rows further down the board that can no longer be finished.
+     */
+    private final int[] rowEmpty;
+    private final int[] columnEmpty;
+
+    /**
+     * How many nodes were abandoned because some row or column couldn't be filled.
+     */
+    private long cutPrunes;
+
+    /**
+     * The biggest enclosed pocket of empty cells checkPockets() will look for.  Flood filling
+     * stops once it has seen this many cells, so the check stays cheap however big the board is.
+     */
+    private static final int POCKET_LIMIT = 256;
+
+    /**
+     * The area of a block of each type.
+     */
+    private final int[] area;
+
+    /**
+     * Whether to look for pockets of empty cells, closed off by the block just placed,
+     * that no combination of the blocks left could fill.
+     */
+    private boolean pocketCheck = true;
+
+    /**
+     * Scratch space for checkPockets(), allocated once.
+     *
+     * visited[cell] is the number of the flood fill that last reached the cell, pocketQueue
+     * holds the cells a flood fill still has to look at, and areaSums is a subset sum set of
+     * the areas of the blocks left, up to POCKET_LIMIT.
+     */
+    private final int[] visited;
+    private int floods;
+    private final int[] pocketQueue = new int[POCKET_LIMIT + 1];
+    private final long[] areaSums = new long[SubsetSums.words(POCKET_LIMIT)];
+
+    /**
+     * How many nodes were abandoned because they had a pocket that couldn't be filled.
+     */
+    private long pocketPrunes;
+
+    /**
+     * The grid being filled.
+     */
+    private final BitGrid grid;
+
+    /**
+     * Gets told about every block placed and removed.
+     */
+    private final SearchListener listener;
+
+    /**
+     * When explore() has to give up before it has tried everything.
+     */
+    private Limits limits = Limits.NONE;
+
+    /**
+     * The placement stack.  The block placed at depth `d` is orientation placedOrientation[d],
+     * with its upper left corner at cell placedCell[d] (row * width + column).
+     *
+     * placedCell[d] is also the cell being covered at that depth, so it's where the search
+     * picks up again when that block is removed.
+     */
+    private final int[] placedOrientation;
+    private final int[] placedCell;
+
+    /**
+     * How many blocks are currently on the grid.
+     */
+    private int depth;
+
+    /**
+     * How many cells the blocks on the grid cover, and the most they have covered so far.
+     */
+    private int covered;
+    private int bestCovered;
+
+    /**
+     * The blocks that covered the most cells so far, in the order they were placed.
+     */
+    private List<Placement> bestPartial = new ArrayList<>();
+
+    /**
+     * The first empty cell on the grid (row * width + column), or -1 if the grid is full.
+     */
+    private int cursor;
+
+    /**
+     * How to pick the cell to cover next.
+     */
+    private Branching branching = Branching.FIRST_EMPTY;
+
+    /**
+     * The cell the next block will be placed on (row * width + column), or -1 if the grid is full.
+     * Always has filled cells (or the edge) above it and to its left.
+     */
+    private int target;
+
+    /**
+     * Incremented by one for each node of the search tree explore() visits.
+     */
+    private long calls;
+
+    /**
+     * explore() gives up once `calls` gets this high.  The same as limits.getCallLimit(), kept here for the hot path.
+     */
+    private long callLimit = Long.MAX_VALUE;
+
+    /**
+     * Set when explore() gives up because of `callLimit`.
+     */
+    private boolean outOfCalls;
+
+    /**
+     * States already known to have no solution, or null to not keep track.
+     */
+    private TranspositionTable table;
+
+    /**
+     * The hash of the current state, kept up to date by push() and pop() while there is a table.
+     */
+    private long hash;
+
+    /**
+     * How many times a block wasn't placed because the table said it would lead to a dead end.
+     */
+    private long tableHits;
+
+    /**
+     * Gets told which blocks were left over every time the search gets stuck, or null to not keep score.
+     */
+    private Activity activity;
+
+    /**
+     * Sets up a search over an empty grid.
+     *
+     * @param puzzle The puzzle to solve
+     * @param listener Gets told about every block placed and removed
+     */
+    public Search(Puzzle puzzle, SearchListener listener) {
+        this.width = puzzle.getWidth();
+        this.height = puzzle.getHeight();
+        this.orientationWidth = puzzle.getOrientationWidth();
+        this.orientationHeight = puzzle.getOrientationHeight();
+        this.orientationType = puzzle.getOrientationType();
+        this.orientationsByWidth = puzzle.getOrientationsByWidth();
+        this.remaining = puzzle.getCounts().clone();
+        this.listener = listener;
+        this.grid = new BitGrid(width, height);
+
+        placedOrientation = new int[puzzle.getBlockCount()];
+        placedCell = new int[puzzle.getBlockCount()];
+
+        sideA = new int[remaining.length];
+        sideB = new int[remaining.length];
+        for (int o = orientationType.length - 1; o >= 0; o--) {
+            sideB[orientationType[o]] = sideA[orientationType[o]];
+            sideA[orientationType[o]] = orientationWidth[o];
+        }
+        heightA = new int[remaining.length];
+        heightB = new int[remaining.length];
+        for (int o = orientationType.length - 1; o >= 0; o--) {
+            heightB[orientationType[o]] = heightA[orientationType[o]];
+            heightA[orientationType[o]] = orientationHeight[o];
+        }
+        for (int t = 0; t < remaining.length; t++) {
+            if (sideB[t] == 0)
+                sideB[t] = sideA[t];
+            if (heightB[t] == 0)
+                heightB[t] = heightA[t];
+        }
+
+        rowEmpty = new int[height];
+        columnEmpty = new int[width];
+        Arrays.fill(rowEmpty, width);
+        Arrays.fill(columnEmpty, height);
+
+        area = new int[remaining.length];
+        for (int o = 0; o < orientationType.length; o++)
+            area[orientationType[o]] = orientationWidth[o] * orientationHeight[o];
+        visited = new int[width * height];
+
+        runWords = SubsetSums.words(width);
+        runSums = new long[(puzzle.getBlockCount() + 1) * runWords];
+        columnWords = SubsetSums.words(height);
+        columnSums = new long[(puzzle.getBlockCount() + 1) * columnWords];
+        updateRunSums();
+    }
+
+    /**
+     * Places blocks on the grid until it is full, taking blocks back off and trying the next
+     * one whenever it gets stuck.
+     *
+     * Blocks that were already on the grid when this is called are left alone, so the search
+     * only covers the part of the tree below them.
+     *
+     * @return true if a complete solution was achieved, false if there isn't one or the search was stopped
+     */
+    public boolean explore() {
+        int floor = depth;
+        // The orientation to try next at the node on top of the stack.
+        int orientation = 0;
+        calls++;
+        // Don't even start if it's too late, e.g. for a parallel task that was queued up before the deadline.
+        if (limits.calledOff())
+            return false;
+
+        while (true) {
+            if (cursor < 0)
+                return true;
+
+            // Whether nothing has been tried at this node yet.
+            boolean fresh = orientation == 0;
+
+            if (fresh && !canFillRun()) {
+                // A fresh node that can't possibly work out.
+                runPrunes++;
+                orientation = -1;
+            } else if (fresh && !canFillCuts()) {
+                cutPrunes++;
+                orientation = -1;
+            } else if (fresh && pocketCheck && !checkPockets()) {
+                pocketPrunes++;
+                orientation = -1;
+            } else {
+                // Look for the next block that will fit at the target cell.
+                orientation = nextFit(orientation);
+            }
+
+            // Don't bother placing it if that leads somewhere already known to be a dead end.
+            if (orientation >= 0 && table != null && table.contains(hash ^ placementKey(orientation))) {
+                tableHits++;
+                orientation++;
+                continue;
+            }
+
+            if (orientation >= 0) {
+                // Place it, and start over on the next empty cell.
+                push(orientation);
+                orientation = 0;
+                // Unless that filled the grid, see whether it's time to give up.
+                calls++;
+                if (cursor < 0)
+                    continue;
+                if (calls >= callLimit) {
+                    outOfCalls = true;
+                    return false;
+                }
+                if ((calls & 0x3ff) == 0 && limits.calledOff())
+                    return false;
+                continue;
+            }
+
+            // Nothing fits here, so there's no solution from this state.
+            if (table != null)
+                table.add(hash);
+            if (fresh && activity != null)
+                activity.bump(remaining);
+
+            // If this is where we started, every possibility has been tried.
+            if (depth == floor)
+                return false;
+
+            // Otherwise take the last block back off and carry on with the one after it.
+            orientation = pop() + 1;
+        }
+    }
+
+    /**
+     * Finds the next orientation of a block that is still available and will fit at the target cell.
+     *
+     * @param from The first orientation to consider
+     * @return The orientation, or -1 if none of them fit (or the grid is full)
+     */
+    public int nextFit(int from) {
+        if (target < 0)
+            return -1;
+
+        int column = target % width;
+        int row = target / width;
+        // Only blocks no wider than the run of empty cells here can fit.
+        int[] candidates = orientationsByWidth[grid.runLength(column, row)];
+        int i = from == 0 ? 0 : Arrays.binarySearch(candidates, from);
+        for (i = i < 0 ? -i - 1 : i; i < candidates.length; i++) {
+            int orientation = candidates[i];
+            if (remaining[orientationType[orientation]] != 0
+                    && grid.fits(orientationWidth[orientation], orientationHeight[orientation], column, row))
+                return orientation;
+        }
+        return -1;
+    }
+
+    /**
+     * Places a block at the target cell, and picks the cell to cover after it.
+     * This method assumes the block will fit no matter what.
+     *
+     * @param orientation The orientation of the block to place
+     */
+    public void push(int orientation) {
+        int w = orientationWidth[orientation];
+        int h = orientationHeight[orientation];
+        int column = target % width;
+        int row = target / width;
+
+        listener.placed(w, h, column, row);
+        grid.place(w, h, column, row);
+        if (table != null)
+            hash ^= placementKey(orientation);
+        remaining[orientationType[orientation]]--;
+        for (int r = row; r < row + h; r++)
+            rowEmpty[r] -= w;
+        for (int c = column; c < column + w; c++)
+            columnEmpty[c] -= h;
+
+        placedOrientation[depth] = orientation;
+        placedCell[depth] = target;
+        depth++;
+        updateRunSums();
+
+        // Only a new record costs anything, and there can't be more of those than there are cells.
+        covered += w * h;
+        if (covered > bestCovered) {
+            bestCovered = covered;
+            bestPartial = getPlacements();
+        }
+
+        // Everything before the cursor is already filled, so the next empty cell can only be at or after it.
+        if (target == cursor)
+            cursor = grid.nextEmpty(column, row);
+        target = branching == Branching.MOST_CONSTRAINED ? mostConstrained() : cursor;
+    }
+
+    /**
+     * Looks through every empty cell with filled cells above it and to its left for the one
+     * the fewest blocks fit on.  Ties go to the first one.
+     *
+     * @return The cell, or -1 if the grid is full
+     */
+    private int mostConstrained() {
+        if (cursor < 0)
+            return -1;
+
+        int best = cursor;
+        int bestCount = countFits(cursor, Integer.MAX_VALUE);
+        // Nothing beats a cell with only one choice (or none).
+        for (int cell = grid.nextCorner(cursor % width + 1, cursor / width);
+                cell >= 0 && bestCount > 1; cell = grid.nextCorner(cell % width + 1, cell / width)) {
+            int count = countFits(cell, bestCount);
+            if (count < bestCount) {
+                best = cell;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @param cell A cell with filled cells above it and to its left
+     * @param limit Stop counting once there are this many
+     * @return How many orientations of the blocks left will fit on the cell, up to `limit`
+     */
+    private int countFits(int cell, int limit) {
+        int column = cell % width;
+        int row = cell / width;
+        int count = 0;
+        for (int orientation : orientationsByWidth[grid.runLength(column, row)]) {
+            if (remaining[orientationType[orientation]] != 0
+                    && grid.fits(orientationWidth[orientation], orientationHeight[orientation], column, row)
+                    && ++count == limit)
+                break;
+        }
+        return count;
+    }
+
+    /**
+     * Works out the run lengths and column heights the blocks left can fill, for the current depth.
+     */
+    private void updateRunSums() {
+        int offset = depth * runWords;
+        SubsetSums.clear(runSums, offset, runWords);
+        for (int t = 0; t < remaining.length; t++) {
+            if (Math.min(sideA[t], sideB[t]) > width)
+                continue;
+            for (int n = 0; n < remaining[t]; n++)
+                SubsetSums.add(runSums, offset, runWords, width, sideA[t], sideB[t]);
+        }
+
+        offset = depth * columnWords;
+        SubsetSums.clear(columnSums, offset, columnWords);
+        for (int t = 0; t < remaining.length; t++) {
+            if (Math.min(heightA[t], heightB[t]) > height)
+                continue;
+            for (int n = 0; n < remaining[t]; n++)
+                SubsetSums.add(columnSums, offset, columnWords, height, heightA[t], heightB[t]);
+        }
+    }
+
+    /**
+     * @return Whether some combination of the blocks left could exactly fill the run of empty cells at the cursor
+     */
+    private boolean canFillRun() {
+        int run = grid.runLength(cursor % width, cursor / width);
+        return SubsetSums.contains(runSums, depth * runWords, run);
+    }
+
+    /**
+     * @return Whether the empty cells left in every row and every column could be made up by some of the blocks left
+     */
+    private boolean canFillCuts() {
+        // Every row above the cursor is already full.
+        for (int r = cursor / width; r < height; r++) {
+            if (!SubsetSums.contains(runSums, depth * runWords, rowEmpty[r]))
+                return false;
+        }
+        for (int c = 0; c < width; c++) {
+            if (!SubsetSums.contains(columnSums, depth * columnWords, columnEmpty[c]))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Looks for pockets of empty cells around the block placed last that are completely closed
+     * off from the rest of the empty cells.  Every pocket has to be filled by some of the blocks
+     * left, so its area has to be a sum of some of their areas.
+     *
+     * @return false if there is a pocket that can't be filled, true if there isn't (or there might not be)
+     */
+    private boolean checkPockets() {
+        if (depth == 0)
+            return true;
+
+        int orientation = placedOrientation[depth - 1];
+        int w = orientationWidth[orientation];
+        int h = orientationHeight[orientation];
+        int column = placedCell[depth - 1] % width;
+        int row = placedCell[depth - 1] / width;
+
+        // Walk once around the ring of cells surrounding the block, corners included.  Each cell
+        // in the ring is next to the ones either side of it, so if the empty cells in the ring
+        // are all in one unbroken stretch they are still connected to each other, and placing
+        // the block can't have closed anything off.  Only when there are two or more stretches
+        // might one of them have been cut off from the rest.
+        int ring = 2 * (w + h) + 4;
+        boolean previous = isEmptyRingCell(ring - 1, column, row, w, h);
+        int stretches = 0;
+        for (int i = 0; i < ring; i++) {
+            boolean empty = isEmptyRingCell(i, column, row, w, h);
+            if (empty && !previous)
+                stretches++;
+            previous = empty;
+        }
+        if (stretches < 2)
+            return true;
+
+        // Start the numbering over long before it could wrap around.
+        if (floods > Integer.MAX_VALUE - ring) {
+            Arrays.fill(visited, 0);
+            floods = 0;
+        }
+
+        // Flood fills numbered above this were started by this check.
+        int start = floods;
+        boolean sumsReady = false;
+
+        // Flood fill from the start of each stretch.
+        previous = isEmptyRingCell(ring - 1, column, row, w, h);
+        for (int i = 0; i < ring; i++) {
+            boolean empty = isEmptyRingCell(i, column, row, w, h);
+            boolean stretchStart = empty && !previous;
+            previous = empty;
+
+            int cell = ringCell(i, column, row, w, h);
+            if (!stretchStart || visited[cell] > start)
+                continue;
+
+            int pocket = floodFill(cell, start);
+            if (pocket < 0)
+                continue;
+
+            if (!sumsReady) {
+                SubsetSums.clear(areaSums, 0, areaSums.length);
+                for (int t = 0; t < remaining.length; t++) {
+                    if (area[t] > POCKET_LIMIT)
+                        continue;
+                    for (int n = 0; n < remaining[t]; n++)
+                        SubsetSums.add(areaSums, 0, areaSums.length, POCKET_LIMIT, area[t], area[t]);
+                }
+                sumsReady = true;
+            }
+            if (!SubsetSums.contains(areaSums, 0, pocket))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Finds a cell in the ring surrounding a w x h block at (column, row), going clockwise
+     * from the top left corner.
+     *
+     * @return The cell as row * width + column, or -1 if it is off the edge of the grid
+     */
+    private int ringCell(int i, int column, int row, int w, int h) {
+        int c, r;
+        if (i < w + 2) {
+            // Along the top, corners included.
+            c = column - 1 + i;
+            r = row - 1;
+        } else if (i < w + h + 2) {
+            // Down the right side.
+            c = column + w;
+            r = row + i - w - 2;
+        } else if (i < 2 * w + h + 4) {
+            // Back along the bottom, corners included.
+            c = column + w - (i - w - h - 2);
+            r = row + h;
+        } else {
+            // Up the left side.
+            c = column - 1;
+            r = row + h - 1 - (i - 2 * w - h - 4);
+        }
+        if (c < 0 || c >= width || r < 0 || r >= height)
+            return -1;
+        return r * width + c;
+    }
+
+    /**
+     * @return Whether a cell in the ring surrounding a block (see ringCell) is on the grid and empty
+     */
+    private boolean isEmptyRingCell(int i, int column, int row, int w, int h) {
+        int cell = ringCell(i, column, row, w, h);
+        return cell >= 0 && grid.isEmpty(cell % width, cell / width);
+    }
+
+    /**
+     * Flood fills the empty cells connected to `cell`.
+     *
+     * @param cell Where to start
+     * @param start The value of `floods` when the current check started
+     * @return The number of cells filled, or -1 if there are more than POCKET_LIMIT of them or they join up
+     *         with a region an earlier fill in the same check gave up on
+     */
+    private int floodFill(int cell, int start) {
+        int flood = ++floods;
+        int size = 0;
+        pocketQueue[size++] = cell;
+        visited[cell] = flood;
+
+        for (int next = 0; next < size; next++) {
+            int c = pocketQueue[next] % width;
+            int r = pocketQueue[next] / width;
+            for (int side = 0; side < 4; side++) {
+                int nc = c + (side == 0 ? 1 : side == 1 ? -1 : 0);
+                int nr = r + (side == 2 ? 1 : side == 3 ? -1 : 0);
+                if (nc < 0 || nc >= width || nr < 0 || nr >= height || !grid.isEmpty(nc, nr))
+                    continue;
+                int neighbour = nr * width + nc;
+                if (visited[neighbour] == flood)
+                    continue;
+                // Any earlier fill this check that got here was too big, so this one is too.
+                if (visited[neighbour] > start || size == POCKET_LIMIT)
+                    return -1;
+                visited[neighbour] = flood;
+                pocketQueue[size++] = neighbour;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @param orientation The orientation of a block that will fit at the target cell
+     * @return What placing the block at the target cell does to the hash of the current state
+     */
+    private long placementKey(int orientation) {
+        int type = orientationType[orientation];
+        return table.blockKey(orientationWidth[orientation], orientationHeight[orientation], target % width, target / width)
+                ^ table.countKey(type, remaining[type]);
+    }
+
+    /**
+     * Removes the last block placed, making the cell it was on the target again.
+     *
+     * @return The orientation of the block that was removed
+     */
+    private int pop() {
+        return pop(true);
+    }
+
+    /**
+     * @param notify Whether to tell the listener the block was cleared
+     * @return The orientation of the block that was removed
+     */
+    private int pop(boolean notify) {
+        depth--;
+        int orientation = placedOrientation[depth];
+        int w = orientationWidth[orientation];
+        int h = orientationHeight[orientation];
+        target = placedCell[depth];
+        int column = target % width;
+        int row = target / width;
+
+        // The block's upper left corner is the first of its cells, so if anything before the cursor
+        // is empty now, that's it.
+        if (cursor < 0 || target < cursor)
+            cursor = target;
+
+        if (notify)
+            listener.cleared(w, h, column, row);
+        grid.clear(w, h, column, row);
+        covered -= w * h;
+        remaining[orientationType[orientation]]++;
+        for (int r = row; r < row + h; r++)
+            rowEmpty[r] += w;
+        for (int c = column; c < column + w; c++)
+            columnEmpty[c] += h;
+        if (table != null)
+            hash ^= placementKey(orientation);
+        return orientation;
+    }
+
+    /**
+     * Works out roughly how much of the search tree explore() had got through when it stopped, by
+     * taking every block back off and counting, at each level, how many of the blocks that fit there
+     * came before the one that was placed.  Those subtrees are finished.  Each level counts for
+     * its share of the level above, as if every subtree were the same size.
+     *
+     * This leaves the grid empty, so it's only good for a search that is finished with.  The listener
+     * isn't told about the blocks coming off, so whatever it shows is left at where the search stopped.
+     *
+     * @return The fraction of the tree that has been searched, from 0 to 1
+     */
+    public double measureProgress() {
+        double progress = 0;
+        int levels = depth;
+        double[] finished = new double[levels];
+        int[] fitting = new int[levels];
+
+        // Unwind from the top, so each level sees the grid as it was when its block was placed.
+        for (int d = levels - 1; d >= 0; d--) {
+            int placed = pop(false);
+            int column = target % width;
+            int row = target / width;
+            for (int orientation : orientationsByWidth[grid.runLength(column, row)]) {
+                if (remaining[orientationType[orientation]] != 0
+                        && grid.fits(orientationWidth[orientation], orientationHeight[orientation], column, row)) {
+                    fitting[d]++;
+                    if (orientation < placed)
+                        finished[d]++;
+                }
+            }
+        }
+
+        double share = 1;
+        for (int d = 0; d < levels; d++) {
+            progress += share * finished[d] / fitting[d];
+            share /= fitting[d];
+        }
+        return progress;
+    }
+
+    /**
+     * Follows one random path down the search tree from the current state and works out how big the
+     * tree would be if every node at each level had as many children as the one on the path (Knuth's
+     * estimator).  Averaged over many paths, that comes out at the size of the tree explore() would
+     * search without a table of dead ends, which can only make it smaller.
+     *
+     * The grid is left the way it was found.  Every node on the path counts towards getCalls().
+     *
+     * @param random Where the choice at each level comes from
+     * @return The estimated number of nodes, counting the current one
+     */
+    public double sampleTreeSize(Random random) {
+        int floor = depth;
+        double estimate = 1;
+        // How many nodes the tree would have at the current level.
+        double level = 1;
+        calls++;
+
+        while (cursor >= 0 && canFillRun() && canFillCuts() && (!pocketCheck || checkPockets())) {
+            // Pick one of the blocks that fit uniformly at random, without having to find them all first.
+            int children = 0;
+            int chosen = -1;
+            for (int orientation = nextFit(0); orientation >= 0; orientation = nextFit(orientation + 1)) {
+                if (random.nextInt(++children) == 0)
+                    chosen = orientation;
+            }
+            if (children == 0)
+                break;
+
+            level *= children;
+            estimate += level;
+            push(chosen);
+            calls++;
+        }
+
+        while (depth > floor)
+            pop();
+        return estimate;
+    }
+
+    /**
+     * @return Every block currently on the grid, in the order they were placed
+     */
+    public List<Placement> getPlacements() {
+        List<Placement> placements = new ArrayList<>();
+        for (int d = 0; d < depth; d++) {
+            int orientation = placedOrientation[d];
+            placements.add(new Placement(placedCell[d] % width, placedCell[d] / width,
+                    orientationWidth[orientation], orientationHeight[orientation]));
+        }
+        return placements;
+    }
+
+    /**
+     * @return The blocks that covered the most cells at any point so far, in the order they were placed
+     */
+    public List<Placement> getBestPartial() {
+        return bestPartial;
+    }
+
+    /**
+     * @return How many cells the blocks from getBestPartial() cover
+     */
+    public int getBestCovered() {
+        return bestCovered;
+    }
+
+    /**
+     * @param limits When explore() has to give up.  It checks them every thousand or so nodes.  Defaults to
+     *               Limits.NONE.
+     */
+    public void setLimits(Limits limits) {
+        this.limits = limits;
+        this.callLimit = limits.getCallLimit();
+    }
+
+    /**
+     * @return Whether explore() gave up because it visited as many nodes as it was allowed to
+     */
+    public boolean isOutOfCalls() {
+        return outOfCalls;
+    }
+
+    /**
+     * Starts keeping track of dead ends in a table, which may be shared with other searches of the same puzzle.
+     * This has to be called before any blocks are placed.
+     *
+     * @param table The table to look dead ends up in and add them to
+     */
+    public void setTable(TranspositionTable table) {
+        this.table = table;
+        this.hash = table.startingHash(remaining);
+    }
+
+    /**
+     * Sets how to pick the cell to cover next.  This has to be called before any blocks are placed.
+     *
+     * @param branching How to pick the cell.  Defaults to Branching.FIRST_EMPTY.
+     */
+    public void setBranching(Branching branching) {
+        this.branching = branching;
+    }
+
+    /**
+     * @param activity Gets told which blocks were left over whenever the search gets stuck, to keep score of
+     *                 which ones cause trouble.  May be shared with other searches of the same puzzle on the same thread.
+     */
+    public void setActivity(Activity activity) {
+        this.activity = activity;
+    }
+
+    /**
+     * @param pocketCheck Whether to look for enclosed pockets of empty cells that can't be filled after
+     *                    placing each block.  Defaults to true.
+     */
+    public void setPocketCheck(boolean pocketCheck) {
+        this.pocketCheck = pocketCheck;
+    }
+
+    /**
+     * @return Counts of the things this search has done, by name, for reporting
+     */
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("run prunes", runPrunes);
+        statistics.put("cut prunes", cutPrunes);
+        if (pocketCheck)
+            statistics.put("pocket prunes", pocketPrunes);
+        if (table != null)
+            statistics.put("transposition table hits", tableHits);
+        return statistics;
+    }
+
+    /**
+     * @return How many blocks are currently on the grid
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return How many nodes of the search tree have been visited
+     */
+    public long getCalls() {
+        return calls;
+    }
+}
@@ -0,0 +1,44 @@
+import java.util.List;
+
+/**
+ * Gets told what a search is doing as it goes, e.g. to animate it.
+ */
+public interface SearchListener {
+
+    /**
+     * A listener that ignores everything, for when nobody is watching.
+     */
+    SearchListener NONE = new SearchListener() {
+        @Override
+        public void placed(int w, int h, int column, int row) {
+        }
+
+        @Override
+        public void cleared(int w, int h, int column, int row) {
+        }
+
+        @Override
+        public void solved(List<Placement> placements) {
+        }
+    };
+
+    /**
+     * Called when a w x h block is placed with its upper left corner at (column, row).
+     */
+    void placed(int w, int h, int column, int row);
+
+    /**
+     * Called when the last block placed, a w x h block at (column, row), is taken back off.
+     */
+    void cleared(int w, int h, int column, int row);
+
+    /**
+     * Called once when a solution has been found.
+     *
+     * Searches running on several threads don't report individual placements, so this may
+     * be the first this listener hears about any of the blocks.
+     *
+     * @param placements Every block of the solution, in the order they were placed
+     */
+    void solved(List<Placement> placements);
+}
@@ -0,0 +1,503 @@
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Solves a puzzle.
+ *
+ * Every call to solve() starts from scratch with its own grid and bookkeeping, so a solver
+ * can be used again and again, and any number of solvers can run at once, even on the same puzzle.
+ */
+public class Solver {
+
+    /**
+     * The ways of searching for a solution.
+     */
+    public enum Engine {
+        /**
+         * Place blocks on the first empty cell and backtrack (Search, or ParallelSearch in parallel mode).
+         */
+        BACKTRACK,
+        /**
+         * Solve it as an exact cover problem with dancing links (DancingLinks).
+         */
+        DANCING_LINKS
+    }
+
+    /**
+     * Which way round to search the board.
+     */
+    public enum Layout {
+        /**
+         * Whichever way makes the rows shorter.  Blocks are placed across each row before moving
+         * down to the next, so short rows get filled in (and checked) sooner, and a row up to 64
+         * cells wide fits in a single long.
+         */
+        AUTO,
+        /**
+         * The board as it was given.
+         */
+        AS_GIVEN,
+        /**
+         * The board flipped over its main diagonal, with every block flipped to match.
+         */
+        TRANSPOSED
+    }
+
+    /**
+     * The puzzle to solve.
+     */
+    private final Puzzle puzzle;
+
+    /**
+     * How to search.
+     */
+    private Engine engine = Engine.BACKTRACK;
+
+    /**
+     * Whether to search on every processor at once rather than just the calling thread.
+     * Only the backtracking engine can do this.
+     */
+    private boolean parallel;
+
+    /**
+     * Whether the backtracking engine should start over in a random order every so often (see RestartSearch),
+     * and the seed it gets its orders from.  Restarting searches only run on the calling thread.
+     */
+    private boolean restarts;
+    private long seed;
+
+    /**
+     * How many nodes the search may visit before giving up.
+     */
+    private long callLimit = Long.MAX_VALUE;
+
+    /**
+     * How many milliseconds the search may take before giving up.
+     */
+    private long timeLimit = Long.MAX_VALUE;
+
+    /**
+     * How many bytes the backtracking engine may spend remembering dead ends, or 0 to not remember them.
+     */
+    private long tableBudget = DEFAULT_TABLE_BUDGET;
+
+    /**
+     * 16 MB is enough to remember a couple of million dead ends, and small enough to be
+     * harmless on a machine that is busy with other things.
+     */
+    public static final long DEFAULT_TABLE_BUDGET = 16L << 20;
+
+    /**
+     * How many nodes estimate() times the real search for.  Enough to even out the differences between nodes.
+     */
+    public static final long CALIBRATION_CALLS = 20000;
+
+    /**
+     * Whether the backtracking engine looks for enclosed pockets it can't fill after placing each block.
+     */
+    private boolean pocketCheck = true;
+
+    /**
+     * How the backtracking engine picks the cell to cover next.
+     */
+    private Search.Branching branching = Search.Branching.FIRST_EMPTY;
+
+    /**
+     * Which way round to search the board.
+     */
+    private Layout layout = Layout.AUTO;
+
+    /**
+     * When set, the search gives up and the result is Result.Status.UNKNOWN.  Null if nobody can call it off.
+     */
+    private AtomicBoolean stop;
+
+    /**
+     * Gets told what the search is doing.
+     */
+    private SearchListener listener = SearchListener.NONE;
+
+    /**
+     * Gets told about anything worth reporting along the way, e.g. each restart.
+     */
+    private Consumer<String> log = message -> {
+    };
+
+    /**
+     * @param puzzle The puzzle to solve
+     */
+    public Solver(Puzzle puzzle) {
+        this.puzzle = puzzle;
+    }
+
+    /**
+     * @param engine How to search.  Defaults to Engine.BACKTRACK.
+     */
+    public void setEngine(Engine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * @param parallel Whether to search on every available processor at once
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Makes the backtracking engine start over every so often with the blocks in a different
+     * random order, with a node budget that grows along the Luby sequence.  Takes precedence
+     * over searching in parallel.
+     *
+     * @param seed Where every run's order comes from.  The same seed always makes the same runs, but only
+     *             all together, as each run also learns from the ones before it.
+     */
+    public void setRestarts(long seed) {
+        this.restarts = true;
+        this.seed = seed;
+    }
+
+    /**
+     * Makes the search give up after visiting a certain number of nodes, with Result.Status.UNKNOWN and an
+     * "out of calls" statistic.  A parallel search only keeps to it roughly, since its threads each take
+     * what's left of it when they start on a piece of the tree.
+     *
+     * @param callLimit How many nodes the search may visit
+     */
+    public void setCallLimit(long callLimit) {
+        this.callLimit = callLimit;
+    }
+
+    /**
+     * Makes the search give up after a certain amount of time, with Result.Status.UNKNOWN and a "timed out"
+     * statistic.  The search checks the clock every thousand or so nodes, so it may run slightly over.
+     *
+     * @param timeLimit How many milliseconds the search may take, counting from when solve() is called
+     */
+    public void setTimeLimit(long timeLimit) {
+        this.timeLimit = timeLimit;
+    }
+
+    /**
+     * @param tableBudget How many bytes the backtracking engine may use to remember states that are dead ends,
+     *                    or 0 to not remember them.  Defaults to DEFAULT_TABLE_BUDGET.
+     */
+    public void setTableBudget(long tableBudget) {
+        this.tableBudget = tableBudget;
+    }
+
+    /**
+     * @param pocketCheck Whether the backtracking engine should look for enclosed pockets of empty cells
+     *                    that can't be filled after placing each block.  Defaults to true.
+     */
+    public void setPocketCheck(boolean pocketCheck) {
+        this.pocketCheck = pocketCheck;
+    }
+
+    /**
+     * @param branching How the backtracking engine should pick the cell to cover next.
+     *                  Defaults to Search.Branching.FIRST_EMPTY.
+     */
+    public void setBranching(Search.Branching branching) {
+        this.branching = branching;
+    }
+
+    /**
+     * @param layout Which way round to search the board.  Solutions are always reported the way
+     *               round the puzzle was given.  Defaults to Layout.AUTO.
+     */
+    public void setLayout(Layout layout) {
+        this.layout = layout;
+    }
+
+    /**
+     * @param log Gets told about anything worth reporting along the way, e.g. the number and budget of each restart
+     */
+    public void setLog(Consumer<String> log) {
+        this.log = log;
+    }
+
+    /**
+     * @param stop A flag that the search will check every so often, giving up if it is set.  A parallel
+     *             search also sets it when it finds a solution.
+     */
+    public void setStop(AtomicBoolean stop) {
+        this.stop = stop;
+    }
+
+    /**
+     * @return The flag set with setStop(), or null if there isn't one
+     */
+    public AtomicBoolean getStop() {
+        return stop;
+    }
+
+    /**
+     * @param listener Gets told what the search is doing, e.g. to show it.  Defaults to SearchListener.NONE.
+     */
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Searches for a way to place every block on the board.
+     *
+     * The search gives up with Result.Status.UNKNOWN if it runs out of calls or time, if it is stopped, or if
+     * the calling thread is interrupted (which is left set).  The statistics then say which, and have whatever
+     * was counted up to that point.  A search on the calling thread without restarts also reports a
+     * "progress (ppm)" statistic of roughly how much of the search tree it got through, in millionths.
+     *
+     * @return The outcome of the search
+     */
+    public Result solve() {
+        long start = System.nanoTime();
+        if (!puzzle.mightBeSolvable())
+            return presolved(start);
+
+        // Search a simpler copy of the puzzle where there is one, and map its solution back.
+        Puzzle searched = puzzle;
+        UnaryOperator<Placement> back = UnaryOperator.identity();
+        Map<String, Long> statistics = new LinkedHashMap<>();
+
+        // If every side shares a common factor, solve it that many times smaller.
+        int scale = puzzle.getScale();
+        if (scale > 1) {
+            searched = searched.scaledDown(scale);
+            back = placement -> placement.scaledUp(scale);
+            statistics.put("scaled down by", (long) scale);
+        }
+
+        if (transposes(searched)) {
+            searched = searched.transposed();
+            UnaryOperator<Placement> after = back;
+            back = placement -> after.apply(placement.transposed());
+            statistics.put("transposed", 1L);
+        }
+        // Nobody listening means nothing to map, and no cost to the search.
+        SearchListener listener = searched == puzzle || this.listener == SearchListener.NONE
+                ? this.listener : new MappedListener(this.listener, back);
+
+        boolean solved;
+        boolean outOfCalls = false;
+        long calls;
+        List<Placement> placements = Collections.emptyList();
+        List<Placement> partial;
+        Limits limits = new Limits(stop, start, timeLimit, callLimit);
+        // Dancing links has no use for a table of dead ends, so don't spend time allocating one.
+        Consumer<Search> setup = engine == Engine.DANCING_LINKS ? null : setup(searched);
+
+        if (engine == Engine.DANCING_LINKS) {
+            DancingLinks search = new DancingLinks(searched, listener);
+            search.setLimits(limits);
+            solved = search.explore();
+            calls = search.getCalls();
+            outOfCalls = search.isOutOfCalls();
+            partial = search.getBestPartial();
+            if (solved)
+                placements = search.getPlacements();
+        } else if (restarts) {
+            RestartSearch search = new RestartSearch(searched, setup, seed);
+            search.setLimits(limits);
+            search.setLog(log);
+            solved = search.explore();
+            calls = search.getCalls();
+            outOfCalls = search.isOutOfCalls();
+            statistics.putAll(search.getStatistics());
+            partial = search.getBestPartial();
+            if (solved)
+                placements = search.getSolution().getPlacements();
+        } else if (parallel) {
+            ParallelSearch search = new ParallelSearch(searched, setup);
+            search.setLimits(limits);
+            solved = search.explore();
+            calls = search.getCalls();
+            outOfCalls = search.isOutOfCalls();
+            statistics.putAll(search.getStatistics());
+            partial = search.getBestPartial();
+            if (solved)
+                placements = search.getSolution().getPlacements();
+        } else {
+            Search search = new Search(searched, listener);
+            setup.accept(search);
+            search.setLimits(limits);
+            solved = search.explore();
+            calls = search.getCalls();
+            statistics.putAll(search.getStatistics());
+            outOfCalls = search.isOutOfCalls();
+            partial = search.getBestPartial();
+            if (solved)
+                placements = search.getPlacements();
+            else if (outOfCalls || limits.calledOff())
+                statistics.put("progress (ppm)", Math.round(search.measureProgress() * 1e6));
+        }
+
+        placements = MappedListener.mapAll(placements, back);
+        partial = solved ? placements : MappedListener.mapAll(partial, back);
+
+        long elapsed = System.nanoTime() - start;
+        if (solved)
+            this.listener.solved(placements);
+
+        Result.Status status = solved ? Result.Status.SOLVED : Result.Status.UNSOLVABLE;
+        if (!solved && (outOfCalls || limits.calledOff())) {
+            status = Result.Status.UNKNOWN;
+            limits.addGiveUpReasons(statistics, outOfCalls);
+        }
+        return new Result(status, placements, partial, solved ? 1 : 0, calls, elapsed, statistics);
+    }
+
+    /**
+     * Guesses how many nodes the backtracking engine will visit and how long that will take on the calling
+     * thread, without running the whole search.
+     *
+     * Random paths are followed down the search tree (see Search.sampleTreeSize()) and the tree's size is
+     * taken to be the average of their estimates.  Then the real search runs for CALIBRATION_CALLS nodes to
+     * time them, and if it finishes in that time, the answer is exact instead.  The
+     * paths ignore the table of dead ends, so this errs on the high side when there is one.  On the other
+     * hand, the estimates are dominated by the rare paths that go deep into big subtrees, so with too
+     * few probes the range can still come out too low.
+     *
+     * The stop flag, time limit and call limit apply as they do to solve(), the call limit covering the
+     * paths and the timed run together.  If they cut the paths short, the estimate is made from the ones
+     * that were followed, timed by how long those took, and there is no timed run.
+     *
+     * @param probes How many random paths to follow.  More give a tighter range, at about the cost of one
+     *               node per block placed along each path.
+     * @param seed Where the paths come from.  The same seed always gives the same estimate, apart from timing.
+     * @return The estimate
+     */
+    public Estimate estimate(int probes, long seed) {
+        if (!puzzle.mightBeSolvable())
+            return new Estimate(0, 0, 0, 0, 0, true);
+
+        long start = System.nanoTime();
+        Limits limits = new Limits(stop, start, timeLimit, callLimit);
+        int scale = puzzle.getScale();
+        Puzzle searched = scale > 1 ? puzzle.scaledDown(scale) : puzzle;
+        if (transposes(searched))
+            searched = searched.transposed();
+
+        // Sample first, which also warms up the code the timed run goes through.
+        Search sampler = new Search(searched, SearchListener.NONE);
+        sampler.setPocketCheck(pocketCheck);
+        sampler.setBranching(branching);
+        Random random = new Random(seed);
+        double sum = 0;
+        double sumSquares = 0;
+        int taken = 0;
+        for (; taken < probes; taken++) {
+            if (sampler.getCalls() >= limits.getCallLimit() || limits.calledOff()) {
+                double nanosPerNode = sampler.getCalls() > 0
+                        ? (double) (System.nanoTime() - start) / sampler.getCalls() : 0;
+                return guess(sum, sumSquares, taken, 1, nanosPerNode);
+            }
+            double size = sampler.sampleTreeSize(random);
+            sum += size;
+            sumSquares += size * size;
+        }
+
+        Search timed = new Search(searched, SearchListener.NONE);
+        setup(searched).accept(timed);
+        timed.setLimits(limits.withCallLimit(Math.min(CALIBRATION_CALLS, limits.getCallLimit() - sampler.getCalls())));
+        long timedStart = System.nanoTime();
+        boolean solved = timed.explore();
+        long calls = timed.getCalls();
+        double nanosPerNode = (double) (System.nanoTime() - timedStart) / Math.max(1, calls);
+        if (solved || !timed.isOutOfCalls() && !limits.calledOff())
+            return new Estimate(calls, calls, calls, nanosPerNode, taken, true);
+
+        // The search has already been seen to take more than the timed run, whatever the samples say.
+        return guess(sum, sumSquares, taken, calls, nanosPerNode);
+    }
+
+    /**
+     * Makes a (not exact) estimate from the sizes of the tree that the random paths came up with.
+     *
+     * @param sum The sizes added up
+     * @param sumSquares Their squares added up
+     * @param taken How many paths there were
+     * @param floor How many nodes the search is already known to visit at least
+     * @param nanosPerNode How long each node takes, in nanoseconds
+     * @return The estimate
+     */
+    private static Estimate guess(double sum, double sumSquares, int taken, double floor, double nanosPerNode) {
+        if (taken == 0)
+            return new Estimate(floor, floor, Double.POSITIVE_INFINITY, nanosPerNode, 0, false);
+
+        // A normal approximation for the mean, 1.96 standard errors either side.
+        double mean = sum / taken;
+        double variance = taken > 1 ? Math.max(0, (sumSquares - sum * mean) / (taken - 1)) : 0;
+        double margin = 1.96 * Math.sqrt(variance / taken);
+        double low = Math.max(floor, mean - margin);
+        double nodes = Math.max(low, mean);
+        return new Estimate(nodes, low, Math.max(nodes, mean + margin), nanosPerNode, taken, false);
+    }
+
+    /**
+     * Finds how many distinct solutions there are, with the dancing links engine whatever the engine setting.
+     * Solutions that only differ by swapping identical blocks count as the same solution.
+     *
+     * @return The outcome of the search, with the number of solutions but none of their placements
+     */
+    public Result countSolutions() {
+        long start = System.nanoTime();
+        if (!puzzle.mightBeSolvable())
+            return presolved(start);
+
+        // Scaling down doesn't change how many solutions there are.
+        int scale = puzzle.getScale();
+        DancingLinks search = new DancingLinks(scale > 1 ? puzzle.scaledDown(scale) : puzzle, SearchListener.NONE);
+        Limits limits = new Limits(stop, start, timeLimit, callLimit);
+        search.setLimits(limits);
+        long solutions = search.countSolutions();
+
+        // Giving up part way means there might be more.
+        Result.Status status = solutions > 0 ? Result.Status.SOLVED : Result.Status.UNSOLVABLE;
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        if (search.isOutOfCalls() || limits.calledOff()) {
+            status = Result.Status.UNKNOWN;
+            limits.addGiveUpReasons(statistics, search.isOutOfCalls());
+        }
+        return new Result(status,
+                Collections.<Placement>emptyList(), solutions, search.getCalls(), System.nanoTime() - start,
+                statistics);
+    }
+
+    /**
+     * @param searched The puzzle as it will be searched, after scaling down
+     * @return Whether to search it transposed
+     */
+    private boolean transposes(Puzzle searched) {
+        return layout == Layout.TRANSPOSED || layout == Layout.AUTO && searched.getHeight() < searched.getWidth();
+    }
+
+    /**
+     * @param searched The puzzle as it will be searched
+     * @return Something to set up each backtracking search of it with the options given, sharing one table
+     *         of dead ends between them
+     */
+    private Consumer<Search> setup(Puzzle searched) {
+        TranspositionTable table = tableBudget > 0 ? new TranspositionTable(searched, tableBudget) : null;
+        return search -> {
+            search.setPocketCheck(pocketCheck);
+            search.setBranching(branching);
+            if (table != null)
+                search.setTable(table);
+        };
+    }
+
+    /**
+     * @param start When solving started, from System.nanoTime()
+     * @return The result for a puzzle that Puzzle.mightBeSolvable() ruled out before searching
+     */
+    private static Result presolved(long start) {
+        return new Result(Result.Status.UNSOLVABLE, Collections.<Placement>emptyList(), 0, 0,
+                System.nanoTime() - start, Collections.singletonMap("ruled out by presolve", 1L));
+    }
+}
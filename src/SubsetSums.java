@@ -0,0 +1,68 @@
+/**
+ * Bitsets of which totals can be made by adding up some of a collection of numbers.
+ *
+ * Bit `n` of a set is on when `n` can be made.  Sets live in a slice of a long[] (starting
+ * at `offset`, `words` longs long) so that a search can keep a stack of them in one array.
+ */
+public class SubsetSums {
+
+    private SubsetSums() {
+    }
+
+    /**
+     * @param limit The largest total anybody will ask about
+     * @return How many longs a set needs to cover totals from 0 to `limit`
+     */
+    public static int words(int limit) {
+        return (limit >>> 6) + 1;
+    }
+
+    /**
+     * Resets a set to the empty collection, where the only total that can be made is 0.
+     */
+    public static void clear(long[] set, int offset, int words) {
+        set[offset] = 1;
+        for (int i = 1; i < words; i++)
+            set[offset + i] = 0;
+    }
+
+    /**
+     * Adds a number to the collection that can count as either `a` or `b`, e.g. a block that can
+     * be turned either way.  Pass the same value twice for a number that can only count one way.
+     * Totals over `limit` are dropped.
+     */
+    public static void add(long[] set, int offset, int words, int limit, int a, int b) {
+        for (int i = words - 1; i >= 0; i--) {
+            long bits = set[offset + i] | shifted(set, offset, i, a);
+            if (b != a)
+                bits |= shifted(set, offset, i, b);
+            set[offset + i] = bits;
+        }
+
+        // Drop anything past the limit so it can't leak into later shifts.
+        int top = limit & 63;
+        if (top != 63)
+            set[offset + words - 1] &= (1L << (top + 1)) - 1;
+    }
+
+    /**
+     * @return Word `i` of the set after shifting the whole set up by `shift` bits
+     */
+    private static long shifted(long[] set, int offset, int i, int shift) {
+        int from = i - (shift >>> 6);
+        int bits = shift & 63;
+        if (from < 0)
+            return 0;
+        long word = set[offset + from] << bits;
+        if (bits != 0 && from > 0)
+            word |= set[offset + from - 1] >>> (64 - bits);
+        return word;
+    }
+
+    /**
+     * @return Whether `total` can be made
+     */
+    public static boolean contains(long[] set, int offset, int total) {
+        return (set[offset + (total >>> 6)] & (1L << total)) != 0;
+    }
+}
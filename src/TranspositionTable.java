@@ -0,0 +1,136 @@
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Remembers search states that are known to have no solution, so the search doesn't
+ * work its way through the same dead end again after reaching it by a different route.
+ *
+ * A state is which cells are filled plus how many of each block type are left, hashed
+ * Zobrist-style: every cell and every (type, count) pair gets a random 64-bit key, and a
+ * state's hash is the XOR of the keys of its filled cells and its counts.  Placing or
+ * removing a block changes the hash by the XOR of the keys under the block, which comes
+ * straight out of a table of prefix XORs, plus the change in one count.
+ *
+ * The table itself is a fixed-size array of hashes, sized to a memory budget.  Each hash has
+ * exactly one slot it can go in, and a new hash simply replaces whatever was there, so the
+ * table never grows.  Entries are read and written atomically, so a single table can be
+ * shared by searches running on several threads.
+ */
+public class TranspositionTable {
+
+    /**
+     * Random keys are generated from a fixed seed, so runs are repeatable.
+     */
+    private static final long SEED = 0x5DEECE66DL;
+
+    /**
+     * Width of the board plus one.
+     */
+    private final int stride;
+
+    /**
+     * cellPrefix[r * stride + c] is the XOR of the keys of every cell above and to the left of (c, r).
+     */
+    private final long[] cellPrefix;
+
+    /**
+     * countKeys[t][n] is the key for there being `n` blocks of type `t` left.
+     */
+    private final long[][] countKeys;
+
+    /**
+     * The hashes of states known to have no solution.  Zero marks an empty slot.
+     */
+    private final AtomicLongArray entries;
+
+    /**
+     * entries.length() - 1, for picking a slot with a mask.
+     */
+    private final int mask;
+
+    /**
+     * Creates an empty table.
+     *
+     * @param puzzle The puzzle whose states will be stored
+     * @param budget How many bytes the table may use for entries.  Rounded down to a power of two entries.
+     */
+    public TranspositionTable(Puzzle puzzle, long budget) {
+        int width = puzzle.getWidth();
+        int height = puzzle.getHeight();
+        Random random = new Random(SEED);
+
+        stride = width + 1;
+        cellPrefix = new long[(height + 1) * stride];
+        for (int r = 1; r <= height; r++) {
+            for (int c = 1; c <= width; c++) {
+                cellPrefix[r * stride + c] = random.nextLong() ^ cellPrefix[(r - 1) * stride + c]
+                        ^ cellPrefix[r * stride + c - 1] ^ cellPrefix[(r - 1) * stride + c - 1];
+            }
+        }
+
+        int[] counts = puzzle.getCounts();
+        countKeys = new long[counts.length][];
+        for (int t = 0; t < counts.length; t++) {
+            countKeys[t] = new long[counts[t] + 1];
+            for (int n = 0; n <= counts[t]; n++)
+                countKeys[t][n] = random.nextLong();
+        }
+
+        long slots = Long.highestOneBit(Math.max(1, Math.min(budget / 8, 1 << 30)));
+        entries = new AtomicLongArray((int) slots);
+        mask = (int) slots - 1;
+    }
+
+    /**
+     * @param counts How many blocks of each type are left
+     * @return The hash of a state with nothing placed and the given counts
+     */
+    public long startingHash(int[] counts) {
+        long hash = 0;
+        for (int t = 0; t < counts.length; t++)
+            hash ^= countKeys[t][counts[t]];
+        return hash;
+    }
+
+    /**
+     * @param w The width of a block
+     * @param h The height of a block
+     * @param column The column of the block's upper left corner
+     * @param row The row of the block's upper left corner
+     * @return What placing (or removing) the block does to the filled cells' part of a hash
+     */
+    public long blockKey(int w, int h, int column, int row) {
+        int top = row * stride;
+        int bottom = (row + h) * stride;
+        return cellPrefix[bottom + column + w] ^ cellPrefix[top + column + w]
+                ^ cellPrefix[bottom + column] ^ cellPrefix[top + column];
+    }
+
+    /**
+     * @param type A block type
+     * @param left How many blocks of that type are left before one is placed
+     * @return What placing one of the blocks (or taking it back off, with `left` one lower) does to a hash
+     */
+    public long countKey(int type, int left) {
+        return countKeys[type][left] ^ countKeys[type][left - 1];
+    }
+
+    /**
+     * @param hash The hash of a state
+     * @return Whether the state is known to have no solution
+     */
+    public boolean contains(long hash) {
+        hash |= 1;
+        return entries.get((int) (hash >>> 32) & mask) == hash;
+    }
+
+    /**
+     * Records that a state has no solution, evicting whatever state was in its slot before.
+     *
+     * @param hash The hash of the state
+     */
+    public void add(long hash) {
+        hash |= 1;
+        entries.lazySet((int) (hash >>> 32) & mask, hash);
+    }
+}